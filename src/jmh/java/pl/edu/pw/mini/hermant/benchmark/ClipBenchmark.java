@@ -0,0 +1,31 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.Clip;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clip construction (framing and clip-level characteristics) on a minute of synthetic audio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClipBenchmark {
+    private SampleBuffer samples;
+
+    @Setup
+    public void setup() {
+        samples = new SampleBuffer(Signals.speechLike(60 * Signals.SAMPLE_RATE, 220, 42));
+    }
+
+    @Benchmark
+    public Clip construct() {
+        return new Clip(samples);
+    }
+}
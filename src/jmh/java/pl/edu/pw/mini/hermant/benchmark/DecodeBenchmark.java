@@ -0,0 +1,88 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+import pl.edu.pw.mini.hermant.io.AudioReader;
+import pl.edu.pw.mini.hermant.io.FFMPEGAudioReader;
+import pl.edu.pw.mini.hermant.io.FFMPEGDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of an in-memory f32le stream, without the ffmpeg process, the same stream read by {@link FFMPEGDecoder}
+ * from a child process, and in-process decoding of 16 bit stereo WAV files at the analysis rate and at 48 kHz, which
+ * is resampled. The child process is a shell script standing in for ffmpeg which cats the f32le file, so it needs
+ * {@code sh} and {@code cat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+    @Param({"441000", "4410000"})
+    public int samplesNum;
+
+    private byte[] stream;
+    private Path wav;
+    private Path wav48;
+    private Path raw;
+    private Path cat;
+    private FFMPEGDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+        float[] samples = Signals.speechLike(samplesNum, 220, 42);
+        stream = Signals.toF32le(samples);
+        wav = Files.createTempFile("decode", ".wav");
+        Files.write(wav, Signals.toWav(samples, Signals.SAMPLE_RATE, 2));
+        wav48 = Files.createTempFile("decode48", ".wav");
+        Files.write(wav48, Signals.toWav(samples, 48000, 2));
+        raw = Files.createTempFile("decode", ".f32");
+        Files.write(raw, stream);
+        // Called like ffmpeg: -nostdin -i <file> <output format> -
+        cat = Files.createTempFile("ffmpeg-cat", ".sh");
+        Files.write(cat, "#!/bin/sh\nexec cat \"$3\"\n".getBytes(StandardCharsets.US_ASCII));
+        if (!cat.toFile().setExecutable(true)) throw new IOException("Couldn't make " + cat + " executable");
+        decoder = new FFMPEGDecoder(cat.toString(), 1, 0, TimeUnit.SECONDS, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(wav);
+        Files.deleteIfExists(wav48);
+        Files.deleteIfExists(raw);
+        Files.deleteIfExists(cat);
+        decoder.close();
+    }
+
+    @Benchmark
+    public SampleBuffer processOutput() throws IOException {
+        return FFMPEGAudioReader.processOutput(new ByteArrayInputStream(stream));
+    }
+
+    @Benchmark
+    public SampleBuffer process() throws IOException, InterruptedException {
+        SampleBuffer samples = new SampleBuffer();
+        if (!decoder.decode(raw.toString(), Signals.SAMPLE_RATE, samples::add)) throw new IOException("cat failed");
+        samples.trim();
+        return samples;
+    }
+
+    @Benchmark
+    public SampleBuffer wav() throws IOException, InterruptedException {
+        return AudioReader.readFile(wav.toString(), Signals.SAMPLE_RATE);
+    }
+
+    @Benchmark
+    public SampleBuffer resampledWav() throws IOException, InterruptedException {
+        return AudioReader.readFile(wav48.toString(), Signals.SAMPLE_RATE);
+    }
+}
@@ -0,0 +1,82 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.FourierPoint;
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.window.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spectral features of a single frame for every window, transformed without padding and zero padded to a power of two.
+ * Frames memoize their spectra, so every invocation works on a fresh frame to measure the full transform.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameBenchmark {
+    @Param({"Rectangle", "Van Hann", "Hamming", "Blackman", "Blackman-Harris", "Kaiser"})
+    public String windowName;
+
+    @Param({"1000", "1024"})
+    public int fftSize;
+
+    private AnalysisConfig config;
+    private AudioWindow window;
+    private float[] samples;
+    private int frameStart;
+
+    @Setup
+    public void setup() {
+        window = window(windowName);
+        config = new AnalysisConfig(Signals.SAMPLE_RATE, Signals.FRAME_LENGTH, Signals.FRAME_LENGTH, fftSize);
+        samples = Signals.speechLike(10 * Signals.FRAME_LENGTH, 220, 42);
+    }
+
+    private Frame nextFrame() {
+        frameStart = (frameStart + Signals.FRAME_LENGTH) % (samples.length - Signals.FRAME_LENGTH);
+        Frame frame = new Frame(samples, frameStart, Signals.FRAME_LENGTH, frameStart, config);
+        frame.calculateZeroCrossingRate();
+        return frame;
+    }
+
+    @Benchmark
+    public List<FourierPoint> frequencies() {
+        return nextFrame().calculateFrequencies(window);
+    }
+
+    @Benchmark
+    public float basicTone() {
+        return nextFrame().calculateBasicTone(window);
+    }
+
+    @Benchmark
+    public float effectiveBandwidth() {
+        return nextFrame().calculateEffectiveBandwidth(window);
+    }
+
+    private static AudioWindow window(String name) {
+        switch (name) {
+            case "Rectangle":
+                return new RectangleAudioWindow();
+            case "Van Hann":
+                return new VanHannAudioWindow();
+            case "Hamming":
+                return new HammingAudioWindow();
+            case "Blackman":
+                return new BlackmanAudioWindow();
+            case "Blackman-Harris":
+                return new BlackmanHarrisAudioWindow();
+            case "Kaiser":
+                return new KaiserAudioWindow();
+            default:
+                throw new IllegalArgumentException("Unknown window: " + name);
+        }
+    }
+}
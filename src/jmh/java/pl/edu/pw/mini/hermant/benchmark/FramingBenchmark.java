@@ -0,0 +1,44 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.Clip;
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overlapping framing of a minute of synthetic audio, whole and for a range of a thousand frames.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FramingBenchmark {
+    @Param({"0.0", "0.5", "0.9"})
+    public float overlap;
+
+    private Clip clip;
+
+    @Setup
+    public void setup() {
+        clip = new Clip(new SampleBuffer(Signals.speechLike(60 * Signals.SAMPLE_RATE, 220, 42)));
+    }
+
+    @Benchmark
+    public List<Frame> overlappingFrames() {
+        return new ArrayList<>(clip.getOverlappingFrames(overlap));
+    }
+
+    @Benchmark
+    public List<Frame> overlappingFramesRange() {
+        List<Frame> frames = clip.getOverlappingFrames(overlap);
+        int from = frames.size() / 2;
+        return new ArrayList<>(frames.subList(from, from + 1000));
+    }
+}
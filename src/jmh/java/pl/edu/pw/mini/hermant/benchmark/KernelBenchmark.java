@@ -0,0 +1,100 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.kernel.Kernels;
+import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time domain kernels for a frame and for a longer block of samples.
+ * {@code Loop} is the plain loop the kernels replaced, {@code Vector} needs a JDK with the incubating Vector API,
+ * which the {@code benchmark} profile adds when built on JDK 17 or newer, see the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KernelBenchmark {
+    @Param({"Loop", "Scalar", "Vector"})
+    public String kernelsName;
+
+    @Param({"1000", "65536"})
+    public int length;
+
+    private Kernels kernels;
+    private float[] samples;
+    private float[] coefficients;
+    private float[] destination;
+
+    @Setup
+    public void setup() {
+        switch (kernelsName) {
+            case "Loop":
+                kernels = new LoopKernels();
+                break;
+            case "Scalar":
+                kernels = Kernels.scalar();
+                break;
+            case "Vector":
+                kernels = Kernels.vector();
+                if (kernels == null) throw new IllegalStateException("Vector API isn't available, build and run the benchmarks on JDK 17 or newer");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kernels: " + kernelsName);
+        }
+        samples = Signals.speechLike(length, 220, 42);
+        coefficients = new HammingAudioWindow().getCoefficients(length);
+        destination = new float[length];
+    }
+
+    @Benchmark
+    public float sumOfSquares() {
+        return kernels.sumOfSquares(samples, 0, length);
+    }
+
+    @Benchmark
+    public int signChanges() {
+        return kernels.signChanges(samples, 0, length);
+    }
+
+    @Benchmark
+    public float[] multiply() {
+        kernels.multiply(samples, 0, coefficients, destination, 0, length);
+        return destination;
+    }
+
+    /**
+     * The loops of {@code Frame}, {@code ClipStatistics} and {@code AudioWindow} before the kernels.
+     */
+    private static class LoopKernels extends Kernels {
+        @Override
+        public String getName() {
+            return "Loop";
+        }
+
+        @Override
+        public float sumOfSquares(float[] samples, int offset, int length) {
+            float sum = 0;
+            for (int i = offset, end = offset + length; i < end; i++) sum += samples[i] * samples[i];
+            return sum;
+        }
+
+        @Override
+        public int signChanges(float[] samples, int offset, int length) {
+            int changes = 0;
+            for (int i = offset, end = offset + length; i < end - 1; i++) {
+                if ((Math.signum(samples[i]) - Math.signum(samples[i + 1])) != 0) changes++;
+            }
+            return changes;
+        }
+
+        @Override
+        public void multiply(float[] source, int sourceOffset, float[] coefficients, float[] destination, int destinationOffset, int length) {
+            for (int i = 0; i < length; i++) destination[destinationOffset + i] = source[sourceOffset + i] * coefficients[i];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.FrameSequence;
+import pl.edu.pw.mini.hermant.live.LiveAnalyzer;
+import pl.edu.pw.mini.hermant.live.LiveFrame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live analysis of ten seconds of f32le audio fed faster than real time, divide by ten seconds for the fraction of
+ * real time the analysis takes. The latency budget covers the whole stream so nothing is dropped and every frame is
+ * analyzed. {@link #latency(Pipe)} samples the time from writing the last sample of a frame to a pipe until the frame
+ * reaches the consumer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LiveBenchmark {
+    private static final int SECONDS = 10;
+
+    @Param({"0.0", "0.5"})
+    public float overlap;
+
+    private byte[] stream;
+
+    @Setup
+    public void setup() {
+        stream = Signals.toF32le(Signals.speechLike(SECONDS * Signals.SAMPLE_RATE, 220, 42));
+    }
+
+    @Benchmark
+    public void analyze(Blackhole blackhole) throws IOException, InterruptedException {
+        new LiveAnalyzer(overlap, SECONDS * Signals.SAMPLE_RATE / Signals.FRAME_LENGTH + 1, 45)
+                .analyze(new ByteArrayInputStream(stream), blackhole::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public LiveFrame latency(Pipe pipe) throws IOException, InterruptedException {
+        pipe.output.write(pipe.hop);
+        pipe.output.flush();
+        return pipe.frames.take();
+    }
+
+    /**
+     * Analyzer of the benchmark's overlap reading a pipe on its own thread for the whole trial. The pipe is primed with
+     * the part of the first frame before its last hop, so every write of a hop of samples completes one frame.
+     */
+    @State(Scope.Thread)
+    public static class Pipe {
+        final BlockingQueue<LiveFrame> frames = new LinkedBlockingQueue<>();
+        PipedOutputStream output;
+        byte[] hop;
+        private Thread analyzer;
+
+        @Setup
+        public void setup(LiveBenchmark benchmark) throws IOException {
+            int hopLength = FrameSequence.getHop(benchmark.overlap, AnalysisConfig.getDefault());
+            hop = Signals.toF32le(Signals.speechLike(hopLength, 220, 42));
+            output = new PipedOutputStream();
+            PipedInputStream input = new PipedInputStream(output, 1 << 16);
+            analyzer = new Thread(() -> {
+                try {
+                    new LiveAnalyzer(benchmark.overlap, 10, 45).analyze(input, frames::add);
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "live-analyzer");
+            analyzer.start();
+            output.write(Signals.toF32le(Signals.speechLike(Signals.FRAME_LENGTH - hopLength, 220, 42)));
+        }
+
+        @TearDown
+        public void tearDown() throws IOException, InterruptedException {
+            output.close();
+            analyzer.join();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.pitch.AutocorrelationPitchDetector;
+import pl.edu.pw.mini.hermant.audio.pitch.CepstralPitchDetector;
+import pl.edu.pw.mini.hermant.audio.pitch.PitchDetector;
+import pl.edu.pw.mini.hermant.audio.pitch.YinPitchDetector;
+import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pitch of a single frame of a synthetic harmonic tone for every detector.
+ * Besides the time, the accuracy is reported as auxiliary counters: out of {@code frames} detected, the number of
+ * {@code grossErrors} more than 5% off the true fundamental and of frames wrongly found {@code unvoiced}.
+ * Frames memoize their spectra, so every invocation works on a fresh frame like {@link FrameBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PitchBenchmark {
+    private static final int FRAMES_NUM = 1000;
+
+    @Param({"Cepstrum", "YIN", "Autocorrelation"})
+    public String detectorName;
+
+    private PitchDetector detector;
+    private float[] samples;
+    private final float[] frequencies = new float[FRAMES_NUM];
+    private int frame;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Accuracy {
+        public long frames;
+        public long grossErrors;
+        public long unvoiced;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = grossErrors = unvoiced = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        switch (detectorName) {
+            case "Cepstrum":
+                detector = new CepstralPitchDetector(new HammingAudioWindow());
+                break;
+            case "YIN":
+                detector = new YinPitchDetector();
+                break;
+            case "Autocorrelation":
+                detector = new AutocorrelationPitchDetector();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown detector: " + detectorName);
+        }
+        samples = Signals.tones(frequencies, Signals.FRAME_LENGTH, 42);
+    }
+
+    @Benchmark
+    public float detect(Accuracy accuracy) {
+        frame = (frame + 1) % FRAMES_NUM;
+        Frame next = new Frame(samples, frame * Signals.FRAME_LENGTH, Signals.FRAME_LENGTH);
+        next.calculateZeroCrossingRate();
+        float pitch = detector.detect(next);
+        accuracy.frames++;
+        if (pitch == 0) accuracy.unvoiced++;
+        else if (Math.abs(pitch - frequencies[frame]) > 0.05f * frequencies[frame]) accuracy.grossErrors++;
+        return pitch;
+    }
+}
@@ -0,0 +1,60 @@
+package pl.edu.pw.mini.hermant.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.FrameSequence;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+import pl.edu.pw.mini.hermant.audio.ShortTimeFourierTransform;
+import pl.edu.pw.mini.hermant.audio.Spectrum;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Magnitude spectra of 100k overlapping frames, batched by the given number of workers and, for comparison, frame
+ * by frame through the cached spectra of a parallel stream as the spectrogram used to be computed.
+ * Frames of a sequence are created on access, so every invocation transforms all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+    private static final int FRAMES_NUM = 100_000;
+    private static final float OVERLAP = 0.75f;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    private final AudioWindow window = new HammingAudioWindow();
+    private AnalysisConfig config;
+    private FrameSequence frames;
+
+    @Setup
+    public void setup() {
+        config = AnalysisConfig.getDefault();
+        int hop = FrameSequence.getHop(OVERLAP, config);
+        frames = new FrameSequence(new SampleBuffer(Signals.speechLike(FRAMES_NUM * hop + config.getFrameLength() + 1, 220, 42)), OVERLAP, config);
+    }
+
+    @Benchmark
+    public float[] batch() {
+        return new ShortTimeFourierTransform(window, config, workers).transform(frames);
+    }
+
+    @Benchmark
+    public float[] perFrame() {
+        int bins = config.getBins();
+        float[] amplitudes = new float[frames.size() * bins];
+        IntStream.range(0, frames.size()).parallel().forEach(i -> {
+            Spectrum spectrum = frames.get(i).getSpectrum(window);
+            for (int bin = 0; bin < bins; bin++) amplitudes[i * bins + bin] = spectrum.getAmplitude(bin);
+        });
+        return amplitudes;
+    }
+}
@@ -2,12 +2,34 @@ package pl.edu.pw.mini.hermant;
 
 import com.formdev.flatlaf.FlatIntelliJLaf;
 import org.apache.commons.lang3.SystemUtils;
+import pl.edu.pw.mini.hermant.batch.BatchAnalyzer;
+import pl.edu.pw.mini.hermant.fingerprint.FingerprintIndex;
 import pl.edu.pw.mini.hermant.gui.Form;
 import pl.edu.pw.mini.hermant.gui.AnalyzerForm;
 import pl.edu.pw.mini.hermant.gui.WindowBuilder;
+import pl.edu.pw.mini.hermant.live.LiveMonitor;
+import pl.edu.pw.mini.hermant.segment.SegmentAnalyzer;
+
+import java.util.Arrays;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--live")) {
+            LiveMonitor.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--segments")) {
+            SegmentAnalyzer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--fingerprint")) {
+            FingerprintIndex.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0) {
+            BatchAnalyzer.main(args);
+            return;
+        }
         FlatIntelliJLaf.install();
         WindowBuilder builder = new WindowBuilder();
         Form form = new AnalyzerForm();
@@ -0,0 +1,162 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import java.util.Properties;
+
+/**
+ * Immutable parameters of the analysis: sample rate, frame length, hop between consecutive frames and FFT size.
+ * Frames shorter than the FFT are zero padded, so the spectra of all frames have the same bins. Power of two FFT
+ * sizes use the fastest transforms. The default configuration can be changed with the system properties
+ * {@value SAMPLE_RATE_PROPERTY}, {@value FRAME_LENGTH_PROPERTY}, {@value HOP_PROPERTY} and {@value FFT_SIZE_PROPERTY}.
+ */
+public final class AnalysisConfig {
+    public static final String SAMPLE_RATE_PROPERTY = "soundanalyzer.sample.rate";
+    public static final String FRAME_LENGTH_PROPERTY = "soundanalyzer.frame.length";
+    public static final String HOP_PROPERTY = "soundanalyzer.frame.hop";
+    public static final String FFT_SIZE_PROPERTY = "soundanalyzer.fft.size";
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+    public static final int DEFAULT_FRAME_LENGTH = 1000;
+
+    private static final AnalysisConfig DEFAULT = fromProperties(System.getProperties());
+
+    private final int sampleRate;
+    private final int frameLength;
+    private final int hop;
+    private final int fftSize;
+
+    /**
+     * @param hop    distance between the starts of consecutive frames of a clip, at most the frame length
+     * @param fftSize size of the transform, at least the frame length
+     */
+    public AnalysisConfig(int sampleRate, int frameLength, int hop, int fftSize) {
+        if (sampleRate <= 0) throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        if (frameLength < 2) throw new IllegalArgumentException("Frame must have at least 2 samples: " + frameLength);
+        if (hop < 1 || hop > frameLength) throw new IllegalArgumentException("Hop must be in [1, " + frameLength + "]: " + hop);
+        if (fftSize < frameLength) throw new IllegalArgumentException("FFT size can't be less than the frame length: " + fftSize);
+        this.sampleRate = sampleRate;
+        this.frameLength = frameLength;
+        this.hop = hop;
+        this.fftSize = fftSize;
+    }
+
+    /**
+     * Consecutive, non overlapping frames and the smallest power of two FFT they fit in.
+     */
+    public AnalysisConfig(int sampleRate, int frameLength) {
+        this(sampleRate, frameLength, frameLength, nextPowerOfTwo(frameLength));
+    }
+
+    /**
+     * Configuration from the system properties at startup, see the class description.
+     */
+    public static AnalysisConfig getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Reads the configuration from the properties described in the class description, missing ones take the
+     * default values.
+     *
+     * @throws IllegalArgumentException if a value isn't a valid number or the values are inconsistent
+     */
+    public static AnalysisConfig fromProperties(Properties properties) {
+        int sampleRate = getInt(properties, SAMPLE_RATE_PROPERTY, DEFAULT_SAMPLE_RATE);
+        int frameLength = getInt(properties, FRAME_LENGTH_PROPERTY, DEFAULT_FRAME_LENGTH);
+        int hop = getInt(properties, HOP_PROPERTY, frameLength);
+        int fftSize = getInt(properties, FFT_SIZE_PROPERTY, nextPowerOfTwo(frameLength));
+        return new AnalysisConfig(sampleRate, frameLength, hop, fftSize);
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value, e);
+        }
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    public AnalysisConfig withSampleRate(int sampleRate) {
+        return new AnalysisConfig(sampleRate, frameLength, hop, fftSize);
+    }
+
+    public AnalysisConfig withFrameLength(int frameLength) {
+        return new AnalysisConfig(sampleRate, frameLength, Math.min(hop, frameLength), Math.max(fftSize, frameLength));
+    }
+
+    public AnalysisConfig withHop(int hop) {
+        return new AnalysisConfig(sampleRate, frameLength, hop, fftSize);
+    }
+
+    public AnalysisConfig withFftSize(int fftSize) {
+        return new AnalysisConfig(sampleRate, frameLength, hop, fftSize);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    public int getFftSize() {
+        return fftSize;
+    }
+
+    /**
+     * Number of bins of a spectrum, from 0 up to but excluding the Nyquist frequency.
+     */
+    public int getBins() {
+        return fftSize / 2;
+    }
+
+    /**
+     * Frequency distance between neighbouring bins in hertz.
+     */
+    public double getBinWidth() {
+        return (double) sampleRate / fftSize;
+    }
+
+    public float getFrequency(int bin) {
+        return (float) bin * sampleRate / fftSize;
+    }
+
+    public double getSampleTime() {
+        return 1.0 / sampleRate;
+    }
+
+    public double getFrameTime() {
+        return (double) frameLength / sampleRate;
+    }
+
+    public double getHopTime() {
+        return (double) hop / sampleRate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AnalysisConfig)) return false;
+        AnalysisConfig that = (AnalysisConfig) o;
+        return sampleRate == that.sampleRate && frameLength == that.frameLength && hop == that.hop && fftSize == that.fftSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((sampleRate * 31 + frameLength) * 31 + hop) * 31 + fftSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d Hz, %d samples per frame, hop %d, FFT %d", sampleRate, frameLength, hop, fftSize);
+    }
+}
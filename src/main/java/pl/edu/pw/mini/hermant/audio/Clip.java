@@ -1,132 +1,151 @@
 package pl.edu.pw.mini.hermant.audio;
 
-import pl.edu.pw.mini.hermant.io.FFMPEGAudioReader;
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+import pl.edu.pw.mini.hermant.io.AudioReader;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class Clip {
-    public static final double SAMPLE_RATE = 44100.0f;
-    public static final int SAMPLES_PER_FRAME = 1000;
-    public static final double FRAME_TIME = SAMPLES_PER_FRAME / SAMPLE_RATE;
-    public static final double SAMPLE_TIME = 1.0f / SAMPLE_RATE;
+    private final AnalysisConfig config;
+    private SampleBuffer samples;
+    private List<Frame> frames; // 22ms frames by default
 
-    private List<Float> samples;
-    private List<Frame> frames; // 22ms frames
-
-    private float volume, ste, vdr, minVolume, maxVolume, avgZCR, lster, hzcrr, zstd;
+    private final ClipStatistics statistics = new ClipStatistics();
 
     public Clip(String file) throws IOException, InterruptedException {
-        samples = FFMPEGAudioReader.readFile(file);
-        calculateVolume();
-        makeFrames();
-        frames.parallelStream().forEach(Frame::calculateVolume);
-        frames.parallelStream().forEach(Frame::calculateZeroCrossingRate);
-        calculateVolumeDynamicRange();
-        calculateAverageZeroCrossingRate();
-        calculateHighZeroCrossingRateRatio();
-        calculateLowShortTimeEnergyRatio();
-        calculateStandardDeviationOfTheZCR();
+        this(file, AnalysisConfig.getDefault());
     }
 
-    private void makeFrames() {
-        frames = new ArrayList<>();
-        int i = 0;
-        for (int size = samples.size() / SAMPLES_PER_FRAME; i < size; i++)
-            frames.add(new Frame(samples.subList(i * SAMPLES_PER_FRAME, (i + 1) * SAMPLES_PER_FRAME), i * SAMPLES_PER_FRAME));
-        List<Float> lastList = samples.subList(i * SAMPLES_PER_FRAME, samples.size());
-        if (lastList.size() > SAMPLES_PER_FRAME / 10) frames.add(new Frame(lastList, i * SAMPLES_PER_FRAME));
-    }
-
-    public List<Frame> getOverlappingFrames(float overlap) {
-        List<Frame> frames = new ArrayList<>();
-        int advance = (int)((1 - overlap) * SAMPLES_PER_FRAME);
-        if(advance <= 0) advance = 1;
-        int i = 0;
-        while(i + SAMPLES_PER_FRAME < getSamplesNum()) {
-            Frame frame = new Frame(samples.subList(i, i + SAMPLES_PER_FRAME), i);
-            frames.add(frame);
-            i += advance;
-        }
-        return frames;
+    public Clip(String file, AnalysisConfig config) throws IOException, InterruptedException {
+        this(AudioReader.readFile(file, config.getSampleRate()), config);
     }
 
+    public Clip(SampleBuffer samples) {
+        this(samples, AnalysisConfig.getDefault());
+    }
 
-    private void calculateVolume() {
-        volume = 0;
-        for (Float sample : samples) volume += sample * sample;
-        ste = (volume /= getSamplesNum());
-        volume = (float) Math.sqrt(ste);
+    /**
+     * @param samples mono samples at the sample rate of the configuration
+     */
+    public Clip(SampleBuffer samples, AnalysisConfig config) {
+        this.config = config;
+        this.samples = samples;
+        statistics.addSamples(samples.array(), 0, samples.size());
+        makeFrames();
+        frames.parallelStream().forEach(Frame::calculateVolume);
+        frames.parallelStream().forEach(Frame::calculateZeroCrossingRate);
+        frames.forEach(statistics::addFrame);
+        statistics.finish();
+    }
+
+    /**
+     * Streaming alternative to the constructor, frames are passed to the consumer while the file is still being decoded
+     * and neither samples nor frames are kept.
+     *
+     * @param frameConsumer receives every frame, in order, with volume and ZCR calculated
+     * @return clip-level statistics or null if decoding failed
+     */
+    @Nullable
+    public static ClipStatistics analyze(String file, Consumer<Frame> frameConsumer) throws IOException, InterruptedException {
+        return analyze(file, AnalysisConfig.getDefault(), frameConsumer);
+    }
+
+    @Nullable
+    public static ClipStatistics analyze(String file, AnalysisConfig config, Consumer<Frame> frameConsumer) throws IOException, InterruptedException {
+        ClipStatistics statistics = new ClipStatistics();
+        FrameSplitter splitter = new FrameSplitter(config, frame -> {
+            statistics.addFrame(frame);
+            frameConsumer.accept(frame);
+        });
+        boolean decoded = AudioReader.readFile(file, config.getSampleRate(), (buffer, offset, length) -> {
+            statistics.addSamples(buffer, offset, length);
+            splitter.accept(buffer, offset, length);
+        });
+        if (!decoded) return null;
+        splitter.finish();
+        statistics.finish();
+        return statistics;
+    }
+
+    /**
+     * Frames start every hop samples, the last one is kept if it's shorter but has enough samples not in the
+     * previous frame, the same way {@link FrameSplitter} does.
+     */
+    private void makeFrames() {
+        frames = new ArrayList<>();
+        int length = config.getFrameLength();
+        int start = 0;
+        for (; start + length <= samples.size(); start += config.getHop())
+            frames.add(new Frame(samples.array(), start, length, start, config));
+        int lastLength = samples.size() - start;
+        if (FrameSplitter.isLastFrameKept(lastLength, start > 0, config))
+            frames.add(new Frame(samples.array(), start, lastLength, start, config));
     }
 
-    private void calculateLowShortTimeEnergyRatio() {
-        float sum = 0.0f;
-        for (Frame frame : frames) {
-            sum += (Math.signum(0.5f * ste - frame.getShortTimeEnergy()) + 1);
-        }
-        lster = sum / (2 * getFramesNum());
+    /**
+     * Returns a lazy sequence of overlapping frames, frames are only created for the indices that are accessed.
+     */
+    public FrameSequence getOverlappingFrames(float overlap) {
+        return new FrameSequence(samples, overlap, config);
     }
 
-    private void calculateHighZeroCrossingRateRatio() {
-        float sum = 0.0f;
-        for (Frame frame : frames) {
-            sum += Math.signum(frame.getZeroCrossingRate() - 1.5f * avgZCR) + 1;
-        }
-        hzcrr = sum / (2 * getFramesNum());
+    /**
+     * Welch's averaged power spectrum of the overlapping frames {@code [from, to)}.
+     *
+     * @param progress receives the number of frames averaged so far
+     * @see PowerSpectrum#average(List, AudioWindow, AnalysisConfig, IntConsumer)
+     */
+    public PowerSpectrum getAveragedSpectrum(AudioWindow window, float overlap, int from, int to, IntConsumer progress) {
+        return PowerSpectrum.average(getOverlappingFrames(overlap).subList(from, to), window, config, progress);
     }
 
-    private void calculateStandardDeviationOfTheZCR() {
-        float sum = 0.0f;
-        for (Frame frame : frames)
-            sum += (frame.getZeroCrossingRate() - avgZCR) * (frame.getZeroCrossingRate() - avgZCR);
-        zstd = (float) Math.sqrt(sum / getFramesNum());
+    public PowerSpectrum getAveragedSpectrum(AudioWindow window, float overlap, int from, int to) {
+        return getAveragedSpectrum(window, overlap, from, to, averaged -> {
+        });
     }
 
     public float getLowShortTimeEnergyRatio() {
-        return lster;
+        return statistics.getLowShortTimeEnergyRatio();
     }
 
     public float getHighZeroCrossingRateRatio() {
-        return hzcrr;
+        return statistics.getHighZeroCrossingRateRatio();
     }
 
     public float getStandardDeviationOfTheZCR() {
-        return zstd;
-    }
-
-    private void calculateVolumeDynamicRange() {
-        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
-        for (Frame frame : frames) {
-            if (frame.getVolume() < min) min = frame.getVolume();
-            if (frame.getVolume() > max) max = frame.getVolume();
-        }
-        vdr = (max - min) / max;
-        minVolume = min;
-        maxVolume = max;
-    }
-
-    private void calculateAverageZeroCrossingRate() {
-        avgZCR = (float) frames.stream().mapToDouble(Frame::getZeroCrossingRate).average().orElse(0.0);
+        return statistics.getStandardDeviationOfTheZCR();
     }
 
     public float getMinVolume() {
-        return minVolume;
+        return statistics.getMinVolume();
     }
 
     public float getMaxVolume() {
-        return maxVolume;
+        return statistics.getMaxVolume();
     }
 
     public float getVolume() {
-        return volume;
+        return statistics.getVolume();
     }
 
     public float getShortTimeEnergy() {
-        return ste;
+        return statistics.getShortTimeEnergy();
+    }
+
+    public AnalysisConfig getConfig() {
+        return config;
+    }
+
+    public ClipStatistics getStatistics() {
+        return statistics;
     }
 
-    public List<Float> getSamples() {
+    public SampleBuffer getSamples() {
         return samples;
     }
 
@@ -143,26 +162,18 @@ public class Clip {
     }
 
     public int getFramesNum(float overlap) {
-        int advance = (int)((1 - overlap) * SAMPLES_PER_FRAME);
-        if(advance <= 0) advance = 1;
-        int i = 0;
-        int k = 0;
-        while(i + SAMPLES_PER_FRAME < getSamplesNum()) {
-            k++;
-            i += advance;
-        }
-        return k;
+        return FrameSequence.getFramesNum(getSamplesNum(), overlap, config);
     }
 
     public float getVolumeDynamicRange() {
-        return vdr;
+        return statistics.getVolumeDynamicRange();
     }
 
     public float getAverageZeroCrossingRate() {
-        return avgZCR;
+        return statistics.getAverageZeroCrossingRate();
     }
 
     public boolean isMusic() {
-        return lster < 0.5f;
+        return statistics.isMusic();
     }
 }
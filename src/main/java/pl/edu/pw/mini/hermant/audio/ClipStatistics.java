@@ -0,0 +1,119 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import pl.edu.pw.mini.hermant.audio.kernel.Kernels;
+
+/**
+ * Accumulates clip-level characteristics from samples and frames as they arrive.
+ * Only per-frame energy and ZCR are kept, so memory grows with the number of frames, not samples.
+ * Values are available after {@link #finish()}.
+ */
+public class ClipStatistics {
+    private float energy;
+    private long samplesNum;
+    private final SampleBuffer frameEnergies = new SampleBuffer(1 << 10);
+    private final SampleBuffer frameZCRs = new SampleBuffer(1 << 10);
+    private double zcrSum;
+    private float minVolume = Float.MAX_VALUE, maxVolume = -Float.MAX_VALUE;
+
+    private float volume, ste, vdr, avgZCR, lster, hzcrr, zstd;
+
+    public void addSamples(float[] samples, int offset, int length) {
+        energy += Kernels.get().sumOfSquares(samples, offset, length);
+        samplesNum += length;
+    }
+
+    /**
+     * Frame must already have its zero crossing rate calculated.
+     */
+    public void addFrame(Frame frame) {
+        if (frame.getVolume() < minVolume) minVolume = frame.getVolume();
+        if (frame.getVolume() > maxVolume) maxVolume = frame.getVolume();
+        frameEnergies.add(frame.getShortTimeEnergy());
+        frameZCRs.add(frame.getZeroCrossingRate());
+        zcrSum += frame.getZeroCrossingRate();
+    }
+
+    public void finish() {
+        ste = energy / samplesNum;
+        volume = (float) Math.sqrt(ste);
+        vdr = (maxVolume - minVolume) / maxVolume;
+        avgZCR = getFramesNum() == 0 ? 0.0f : (float) (zcrSum / getFramesNum());
+        calculateLowShortTimeEnergyRatio();
+        calculateHighZeroCrossingRateRatio();
+        calculateStandardDeviationOfTheZCR();
+    }
+
+    private void calculateLowShortTimeEnergyRatio() {
+        float sum = 0.0f;
+        float[] energies = frameEnergies.array();
+        for (int i = 0, size = getFramesNum(); i < size; i++) {
+            sum += (Math.signum(0.5f * ste - energies[i]) + 1);
+        }
+        lster = sum / (2 * getFramesNum());
+    }
+
+    private void calculateHighZeroCrossingRateRatio() {
+        float sum = 0.0f;
+        float[] zcrs = frameZCRs.array();
+        for (int i = 0, size = getFramesNum(); i < size; i++) {
+            sum += Math.signum(zcrs[i] - 1.5f * avgZCR) + 1;
+        }
+        hzcrr = sum / (2 * getFramesNum());
+    }
+
+    private void calculateStandardDeviationOfTheZCR() {
+        float sum = 0.0f;
+        float[] zcrs = frameZCRs.array();
+        for (int i = 0, size = getFramesNum(); i < size; i++)
+            sum += (zcrs[i] - avgZCR) * (zcrs[i] - avgZCR);
+        zstd = (float) Math.sqrt(sum / getFramesNum());
+    }
+
+    public float getLowShortTimeEnergyRatio() {
+        return lster;
+    }
+
+    public float getHighZeroCrossingRateRatio() {
+        return hzcrr;
+    }
+
+    public float getStandardDeviationOfTheZCR() {
+        return zstd;
+    }
+
+    public float getMinVolume() {
+        return minVolume;
+    }
+
+    public float getMaxVolume() {
+        return maxVolume;
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+
+    public float getShortTimeEnergy() {
+        return ste;
+    }
+
+    public float getVolumeDynamicRange() {
+        return vdr;
+    }
+
+    public float getAverageZeroCrossingRate() {
+        return avgZCR;
+    }
+
+    public long getSamplesNum() {
+        return samplesNum;
+    }
+
+    public int getFramesNum() {
+        return frameZCRs.size();
+    }
+
+    public boolean isMusic() {
+        return lster < 0.5f;
+    }
+}
@@ -0,0 +1,58 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import org.jtransforms.fft.FloatFFT_1D;
+import pl.edu.icm.jlargearrays.ConcurrencyUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per thread FFT plans keyed by transform size together with reusable scratch arrays.
+ * Never share an instance between threads, obtain it with {@link #get()} instead.
+ * <p>
+ * Frames are transformed in parallel, one transform per thread, so JTransforms is limited to a single thread.
+ * Otherwise transforms of 8192 points and more would split themselves over its own thread pool on top of the threads
+ * already transforming other frames. The limit is process-wide and set when this class is initialized, which happens
+ * before the first plan is created.
+ */
+public final class FFTWorkspace {
+    public static final int SLOTS = 3;
+    private static final ThreadLocal<FFTWorkspace> WORKSPACES = ThreadLocal.withInitial(FFTWorkspace::new);
+
+    static {
+        ConcurrencyUtils.setNumberOfThreads(1);
+    }
+
+    private final Map<Integer, FloatFFT_1D> plans = new HashMap<>();
+    private final float[][] buffers = new float[SLOTS][0];
+
+    private FFTWorkspace() {
+    }
+
+    public static FFTWorkspace get() {
+        return WORKSPACES.get();
+    }
+
+    public FloatFFT_1D plan(int size) {
+        FloatFFT_1D plan = plans.get(size);
+        if (plan == null) plans.put(size, plan = new FloatFFT_1D(size));
+        return plan;
+    }
+
+    /**
+     * Returns a scratch array of at least the given length, its content is undefined.
+     * The array is valid until the next call on this thread.
+     */
+    public float[] buffer(int length) {
+        return buffer(0, length);
+    }
+
+    /**
+     * Returns one of {@value SLOTS} independent scratch arrays, for computations needing more than one at a time.
+     * The array is valid until the next call for the same slot on this thread.
+     */
+    public float[] buffer(int slot, int length) {
+        if (buffers[slot].length < length) buffers[slot] = new float[length];
+        return buffers[slot];
+    }
+}
@@ -0,0 +1,30 @@
+package pl.edu.pw.mini.hermant.audio;
+
+/**
+ * Per-frame features that can be extracted by {@link FeatureExtractor}.
+ */
+public enum Feature {
+    VOLUME(false),
+    SHORT_TIME_ENERGY(false),
+    ZERO_CROSSING_RATE(false),
+    BASE_TONE(true),
+    FREQUENCY_VOLUME(true),
+    FREQUENCY_CENTROID(true),
+    EFFECTIVE_BANDWIDTH(true),
+    ERSB1(true),
+    ERSB2(true),
+    ERSB3(true);
+
+    private final boolean spectral;
+
+    Feature(boolean spectral) {
+        this.spectral = spectral;
+    }
+
+    /**
+     * Whether the feature needs the spectrum of the frame.
+     */
+    public boolean isSpectral() {
+        return spectral;
+    }
+}
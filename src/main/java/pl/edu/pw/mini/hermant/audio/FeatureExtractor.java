@@ -0,0 +1,150 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import pl.edu.pw.mini.hermant.audio.pitch.CepstralPitchDetector;
+import pl.edu.pw.mini.hermant.audio.pitch.PitchDetector;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Computes a set of features for a sequence of frames in a single pass per frame.
+ * Frames are transformed in blocks by a {@link ShortTimeFourierTransform} and all spectral features, and the base
+ * tone of a detector working on the spectrum, are derived from the rows of the block. Values are the same as the ones
+ * returned by the corresponding {@link Frame} methods.
+ */
+public class FeatureExtractor {
+    public static final float MAX_FREQUENCY = 11025;
+    private static final float[] BAND_EDGES = {0, 630, 1720, 4400};
+    private static final int BLOCK_SIZE = 2048;
+
+    private final AudioWindow window;
+    private final Set<Feature> features;
+    private final PitchDetector pitchDetector;
+
+    public FeatureExtractor(AudioWindow window, Set<Feature> features) {
+        this(window, features, new CepstralPitchDetector(window));
+    }
+
+    /**
+     * @param pitchDetector computes {@link Feature#BASE_TONE}
+     */
+    public FeatureExtractor(AudioWindow window, Set<Feature> features, PitchDetector pitchDetector) {
+        this.window = window;
+        this.features = features.isEmpty() ? EnumSet.noneOf(Feature.class) : EnumSet.copyOf(features);
+        this.pitchDetector = pitchDetector;
+    }
+
+    public FeatureExtractor(AudioWindow window) {
+        this(window, EnumSet.allOf(Feature.class));
+    }
+
+    public AudioWindow getWindow() {
+        return window;
+    }
+
+    public Set<Feature> getFeatures() {
+        return features;
+    }
+
+    public PitchDetector getPitchDetector() {
+        return pitchDetector;
+    }
+
+    public FeatureTable extract(List<Frame> frames) {
+        return extract(frames, extracted -> {
+        });
+    }
+
+    /**
+     * Extracts the features in blocks of {@value BLOCK_SIZE} frames, each block transformed and then extracted in
+     * parallel.
+     * Between the blocks the number of frames extracted so far is reported and the calling thread is checked for
+     * an interrupt.
+     *
+     * @throws CancellationException if the calling thread is interrupted, the interrupt status stays set
+     */
+    public FeatureTable extract(List<Frame> frames, IntConsumer progress) {
+        int framesNum = frames.size();
+        float[][] columns = new float[Feature.values().length][];
+        for (Feature feature : features) columns[feature.ordinal()] = new float[framesNum];
+        boolean spectral = features.stream().anyMatch(feature -> feature.isSpectral() && feature != Feature.BASE_TONE);
+        boolean spectralPitch = features.contains(Feature.BASE_TONE) && pitchDetector.usesSpectrum(window);
+        ShortTimeFourierTransform transform = null;
+        float[] magnitudes = null;
+        if ((spectral || spectralPitch) && framesNum > 0) {
+            transform = new ShortTimeFourierTransform(window, frames.get(0).getConfig());
+            magnitudes = new float[Math.min(BLOCK_SIZE, framesNum) * transform.getBins()];
+        }
+        for (int from = 0; from < framesNum; from += BLOCK_SIZE) {
+            if (Thread.currentThread().isInterrupted()) throw new CancellationException("Feature extraction interrupted");
+            int to = Math.min(from + BLOCK_SIZE, framesNum);
+            if (transform != null) transform.transform(frames, from, to, magnitudes, 0);
+            int blockFrom = from;
+            int bins = transform == null ? 0 : transform.getBins();
+            float[] block = magnitudes;
+            IntStream.range(from, to).parallel().forEach(i -> extract(frames.get(i), i, columns, block, (i - blockFrom) * bins, spectral));
+            progress.accept(to);
+        }
+        FeatureTable table = new FeatureTable(framesNum);
+        for (Feature feature : features) table.addColumn(feature, columns[feature.ordinal()]);
+        return table;
+    }
+
+    /**
+     * @param magnitudes spectrum of the frame at {@code [offset, offset + bins)}, null if no feature needs it
+     */
+    private void extract(Frame frame, int index, float[][] columns, float[] magnitudes, int offset, boolean spectral) {
+        if (features.contains(Feature.ZERO_CROSSING_RATE) || features.contains(Feature.BASE_TONE))
+            frame.calculateZeroCrossingRate();
+        set(columns, Feature.VOLUME, index, frame.getVolume());
+        set(columns, Feature.SHORT_TIME_ENERGY, index, frame.getShortTimeEnergy());
+        set(columns, Feature.ZERO_CROSSING_RATE, index, frame.getZeroCrossingRate());
+        if (features.contains(Feature.BASE_TONE)) set(columns, Feature.BASE_TONE, index,
+                magnitudes != null ? pitchDetector.detect(frame, magnitudes, offset) : pitchDetector.detect(frame));
+        if (!spectral) return;
+
+        AnalysisConfig config = frame.getConfig();
+        float frameLength = config.getFrameLength();
+        float totalVolume = 0, band1 = 0, band2 = 0, band3 = 0, centroid = 0, amplitudeSum = 0;
+        int size = config.getBins();
+        for (int i = 0; i < size; i++) {
+            float frequency = config.getFrequency(i);
+            float amplitude = magnitudes[offset + i] * 100f / frameLength;
+            float power = amplitude * amplitude;
+            if (frequency <= MAX_FREQUENCY) totalVolume += power;
+            if (frequency <= BAND_EDGES[1]) band1 += power;
+            if (frequency >= BAND_EDGES[1] && frequency <= BAND_EDGES[2]) band2 += power;
+            if (frequency >= BAND_EDGES[2] && frequency <= BAND_EDGES[3]) band3 += power;
+            centroid += amplitude * frequency;
+            amplitudeSum += amplitude;
+        }
+        centroid /= amplitudeSum;
+        float frequencyVolume = totalVolume / size;
+        set(columns, Feature.FREQUENCY_VOLUME, index, frequencyVolume);
+        set(columns, Feature.FREQUENCY_CENTROID, index, centroid);
+        set(columns, Feature.ERSB1, index, band1 / size / frequencyVolume);
+        set(columns, Feature.ERSB2, index, band2 / size / frequencyVolume);
+        set(columns, Feature.ERSB3, index, band3 / size / frequencyVolume);
+
+        if (features.contains(Feature.EFFECTIVE_BANDWIDTH)) {
+            float bandwidth = 0, powerSum = 0;
+            for (int i = 0; i < size; i++) {
+                float amplitude = magnitudes[offset + i] * 100f / frameLength;
+                float frequency = config.getFrequency(i);
+                bandwidth += (frequency - centroid) * (frequency - centroid) * (amplitude * amplitude);
+                powerSum += amplitude * amplitude;
+            }
+            set(columns, Feature.EFFECTIVE_BANDWIDTH, index, (float) Math.sqrt(bandwidth / powerSum));
+        }
+    }
+
+    private static void set(float[][] columns, Feature feature, int index, float value) {
+        float[] column = columns[feature.ordinal()];
+        if (column != null) column[index] = value;
+    }
+}
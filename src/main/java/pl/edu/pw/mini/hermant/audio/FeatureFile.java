@@ -0,0 +1,415 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.io.AudioReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Per-frame features written once to a binary columnar file and read back through memory mapping, so charts and
+ * time-range queries don't need the audio decoded again.
+ * <p>
+ * The file is little endian: the magic {@code SAFT}, the format version, the length of the header, the
+ * {@link Parameters} the features were computed with, the number of frames and a directory of columns, each
+ * a feature name with the offset of its data. The data of a column is a contiguous array of floats, aligned to
+ * 8 bytes. Files of other versions are rejected.
+ * <p>
+ * The analyzer keeps the feature files of the clips it opens in the directory given by the
+ * {@value DIRECTORY_PROPERTY} system property, see {@link #path(Path, String, int, FeatureExtractor)}.
+ */
+public class FeatureFile implements Closeable {
+    public static final String DIRECTORY_PROPERTY = "soundanalyzer.features.dir";
+    public static final int VERSION = 2;
+    private static final String EXTENSION = ".features";
+    private static final int MAGIC = 'S' | 'A' << 8 | 'F' << 16 | 'T' << 24;
+    private static final int ALIGNMENT = 8;
+
+    private final FileChannel channel;
+    private final Parameters parameters;
+    private final int framesNum;
+    private final Map<Feature, FloatBuffer> columns = new EnumMap<>(Feature.class);
+
+    private FeatureFile(FileChannel channel, Parameters parameters, int framesNum) {
+        this.channel = channel;
+        this.parameters = parameters;
+        this.framesNum = framesNum;
+    }
+
+    /**
+     * Writes the table to a temporary file next to the target, which replaces the target once it's complete.
+     */
+    public static void write(Path file, FeatureTable table, Parameters parameters) throws IOException {
+        List<Feature> features = new ArrayList<>();
+        for (Feature feature : Feature.values()) if (table.hasColumn(feature)) features.add(feature);
+        long columnBytes = (long) table.getFramesNum() * Float.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(1 << 12).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(0);
+        parameters.write(header);
+        header.putInt(table.getFramesNum()).putInt(features.size());
+        int headerLength = header.position();
+        for (Feature feature : features) headerLength += Long.BYTES + Short.BYTES + feature.name().length();
+        long offset = align(headerLength);
+        for (Feature feature : features) {
+            header.putLong(offset);
+            putString(header, feature.name());
+            offset += align(columnBytes);
+        }
+        header.putInt(8, headerLength).flip();
+
+        Path directoryPath = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directoryPath, "features", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) channel.write(header);
+                long position = align(headerLength);
+                for (Feature feature : features) {
+                    ByteBuffer data = ByteBuffer.allocate((int) columnBytes).order(ByteOrder.LITTLE_ENDIAN);
+                    data.asFloatBuffer().put(table.getColumn(feature));
+                    while (data.hasRemaining()) position += channel.write(data, position);
+                    position = align(position);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Opens the file and maps its columns.
+     *
+     * @throws IOException if it isn't a feature file, it's of another version or it's truncated
+     */
+    public static FeatureFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer start = read(channel, 0, 12);
+            if (start.getInt(0) != MAGIC) throw new IOException(file + " isn't a feature file");
+            if (start.getInt(4) != VERSION) throw new IOException("Unsupported feature file version " + start.getInt(4) + " of " + file);
+            int headerLength = start.getInt(8);
+            if (headerLength < 12 || headerLength > channel.size()) throw new IOException("Corrupted feature file " + file);
+            ByteBuffer header = read(channel, 0, headerLength);
+            header.position(12);
+            Parameters parameters = Parameters.read(header);
+            int framesNum = header.getInt();
+            int columnsNum = header.getInt();
+            FeatureFile features = new FeatureFile(channel, parameters, framesNum);
+            long columnBytes = (long) framesNum * Float.BYTES;
+            for (int i = 0; i < columnsNum; i++) {
+                long offset = header.getLong();
+                Feature feature = Feature.valueOf(getString(header));
+                if (offset < headerLength || offset + columnBytes > channel.size())
+                    throw new IOException("Column " + feature + " of " + file + " is truncated");
+                features.columns.put(feature, channel.map(FileChannel.MapMode.READ_ONLY, offset, columnBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+            }
+            return features;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (e instanceof IOException) throw (IOException) e;
+            throw new IOException("Corrupted feature file " + file, e);
+        }
+    }
+
+    /**
+     * Opens the feature file of the audio file if it was computed with the same parameters, from the current version
+     * of the audio file and has all the features, otherwise decodes the audio file, extracts the features and
+     * writes them first.
+     */
+    public static FeatureFile openOrCreate(Path featureFile, String audioFile, AnalysisConfig config, FeatureExtractor extractor)
+            throws IOException, InterruptedException {
+        Parameters parameters = Parameters.of(audioFile, config, config.getHop(), true, extractor);
+        FeatureFile features = openIfCurrent(featureFile, parameters, extractor);
+        if (features != null) return features;
+        SampleBuffer samples = AudioReader.readFile(audioFile, config.getSampleRate());
+        if (samples == null) throw new IOException("Couldn't decode " + audioFile);
+        write(featureFile, extractor.extract(new Clip(samples, config).getFrames()), parameters);
+        return open(featureFile);
+    }
+
+    /**
+     * Like {@link #openOrCreate(Path, String, AnalysisConfig, FeatureExtractor)} for frames of the already decoded
+     * audio file, which are extracted only if the feature file isn't current. A sequence has no shorter last frame,
+     * so a file written from the frames of a {@link Clip} isn't current for it, even with the same hop.
+     *
+     * @param progress receives the number of frames extracted so far
+     * @throws java.util.concurrent.CancellationException if the calling thread is interrupted while extracting
+     */
+    public static FeatureFile openOrCreate(Path featureFile, String audioFile, FrameSequence frames, FeatureExtractor extractor,
+                                           IntConsumer progress) throws IOException {
+        Parameters parameters = Parameters.of(audioFile, frames.getConfig(), frames.getHop(), false, extractor);
+        FeatureFile features = openIfCurrent(featureFile, parameters, extractor);
+        if (features != null) return features;
+        write(featureFile, extractor.extract(frames, progress), parameters);
+        return open(featureFile);
+    }
+
+    @Nullable
+    private static FeatureFile openIfCurrent(Path featureFile, Parameters parameters, FeatureExtractor extractor) {
+        if (!Files.isRegularFile(featureFile)) return null;
+        try {
+            FeatureFile features = open(featureFile);
+            if (features.parameters.equals(parameters) && features.columns.keySet().containsAll(extractor.getFeatures())) return features;
+            features.close();
+        } catch (IOException e) {
+            // Written by another version or damaged, it's computed again
+        }
+        return null;
+    }
+
+    /**
+     * @return the directory of the {@value DIRECTORY_PROPERTY} property or null if it isn't set or can't be created
+     */
+    @Nullable
+    public static Path directoryFromSystemProperties() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) return null;
+        try {
+            return Files.createDirectories(Paths.get(directory));
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Feature files disabled: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Feature file of the audio file in the directory, named by a hash of the absolute path of the audio file, the
+     * hop between frames, the window and the pitch detector, so files of different settings are kept side by side.
+     * Whether it's current is checked by {@link #openOrCreate}.
+     */
+    public static Path path(Path directory, String audioFile, int frameHop, FeatureExtractor extractor) {
+        String source = Paths.get(audioFile).toAbsolutePath() + "|" + frameHop + "|" + extractor.getWindow().getName() + "|"
+                + extractor.getPitchDetector().getName();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) builder.append(String.format("%02x", b));
+            return directory.resolve(builder.append(EXTENSION).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    public int getFramesNum() {
+        return framesNum;
+    }
+
+    public Set<Feature> getFeatures() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    public boolean hasColumn(Feature feature) {
+        return columns.containsKey(feature);
+    }
+
+    public double getFrameTime(int frame) {
+        return (double) frame * parameters.frameHop / parameters.config.getSampleRate();
+    }
+
+    /**
+     * @return index of the first frame starting at or after the time, from 0 to the number of frames
+     */
+    public int getFrame(double time) {
+        double frame = Math.ceil(time * parameters.config.getSampleRate() / parameters.frameHop - 1e-9);
+        return (int) Math.max(0, Math.min(framesNum, frame));
+    }
+
+    public float get(Feature feature, int frame) {
+        return column(feature).get(frame);
+    }
+
+    /**
+     * Values of the feature for the frames starting in [from, to) seconds.
+     */
+    public float[] read(Feature feature, double from, double to) {
+        return read(feature, getFrame(from), getFrame(to));
+    }
+
+    /**
+     * Values of the feature for the frames [fromFrame, toFrame).
+     */
+    public float[] read(Feature feature, int fromFrame, int toFrame) {
+        if (fromFrame < 0 || toFrame > framesNum || fromFrame > toFrame)
+            throw new IndexOutOfBoundsException("Frames [" + fromFrame + ", " + toFrame + ") of " + framesNum);
+        FloatBuffer column = column(feature).duplicate();
+        float[] values = new float[toFrame - fromFrame];
+        column.position(fromFrame);
+        column.get(values);
+        return values;
+    }
+
+    /**
+     * Copies the columns of the frames [fromFrame, toFrame) to a table, e.g. to draw them.
+     */
+    public FeatureTable readTable(int fromFrame, int toFrame) {
+        FeatureTable table = new FeatureTable(toFrame - fromFrame);
+        for (Feature feature : columns.keySet()) table.addColumn(feature, read(feature, fromFrame, toFrame));
+        return table;
+    }
+
+    private FloatBuffer column(Feature feature) {
+        FloatBuffer column = columns.get(feature);
+        if (column == null) throw new IllegalArgumentException("Feature " + feature + " isn't in the file");
+        return column;
+    }
+
+    /**
+     * Closes the file, mapped columns stay readable until they are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of feature file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Everything the features of a file depend on: the analysis configuration, the samples between consecutive
+     * frames, whether a shorter last frame is kept, the window and pitch detector, and the size and modification time
+     * of the audio file.
+     */
+    public static final class Parameters {
+        private final AnalysisConfig config;
+        private final int frameHop;
+        private final boolean partialLastFrame;
+        private final String window;
+        private final String pitchDetector;
+        private final long sourceSize;
+        private final long sourceModified;
+
+        /**
+         * @param partialLastFrame whether the last frame may be shorter than the frame length, as in
+         *                         {@link Clip#getFrames()}, or all frames are whole, as in a {@link FrameSequence}
+         */
+        public Parameters(AnalysisConfig config, int frameHop, boolean partialLastFrame, String window, String pitchDetector,
+                          long sourceSize, long sourceModified) {
+            this.config = config;
+            this.frameHop = frameHop;
+            this.partialLastFrame = partialLastFrame;
+            this.window = window;
+            this.pitchDetector = pitchDetector;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+        }
+
+        /**
+         * Parameters of features extracted from the audio file, whose size and modification time are 0 if it isn't
+         * a local file.
+         */
+        public static Parameters of(String audioFile, AnalysisConfig config, int frameHop, boolean partialLastFrame,
+                                    FeatureExtractor extractor) throws IOException {
+            long size = 0, modified = 0;
+            try {
+                Path path = Paths.get(audioFile);
+                if (Files.isRegularFile(path)) {
+                    size = Files.size(path);
+                    modified = Files.getLastModifiedTime(path).toMillis();
+                }
+            } catch (InvalidPathException ignored) {
+            }
+            return new Parameters(config, frameHop, partialLastFrame, extractor.getWindow().getName(),
+                    extractor.getPitchDetector().getName(), size, modified);
+        }
+
+        private void write(ByteBuffer buffer) {
+            buffer.putInt(config.getSampleRate()).putInt(config.getFrameLength()).putInt(config.getHop()).putInt(config.getFftSize());
+            buffer.putInt(frameHop).put((byte) (partialLastFrame ? 1 : 0)).putLong(sourceSize).putLong(sourceModified);
+            putString(buffer, window);
+            putString(buffer, pitchDetector);
+        }
+
+        private static Parameters read(ByteBuffer buffer) {
+            AnalysisConfig config = new AnalysisConfig(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+            int frameHop = buffer.getInt();
+            boolean partialLastFrame = buffer.get() != 0;
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            return new Parameters(config, frameHop, partialLastFrame, getString(buffer), getString(buffer), sourceSize, sourceModified);
+        }
+
+        public AnalysisConfig getConfig() {
+            return config;
+        }
+
+        public int getFrameHop() {
+            return frameHop;
+        }
+
+        public boolean hasPartialLastFrame() {
+            return partialLastFrame;
+        }
+
+        public String getWindow() {
+            return window;
+        }
+
+        public String getPitchDetector() {
+            return pitchDetector;
+        }
+
+        public long getSourceSize() {
+            return sourceSize;
+        }
+
+        public long getSourceModified() {
+            return sourceModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Parameters)) return false;
+            Parameters that = (Parameters) o;
+            return frameHop == that.frameHop && partialLastFrame == that.partialLastFrame && sourceSize == that.sourceSize && sourceModified == that.sourceModified
+                    && config.equals(that.config) && window.equals(that.window) && pitchDetector.equals(that.pitchDetector);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(config, frameHop, partialLastFrame, window, pitchDetector, sourceSize, sourceModified);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Columnar per-frame features, one primitive column per extracted {@link Feature}.
+ */
+public class FeatureTable {
+    private final int framesNum;
+    private final Map<Feature, float[]> columns = new EnumMap<>(Feature.class);
+
+    public FeatureTable(int framesNum) {
+        this.framesNum = framesNum;
+    }
+
+    void addColumn(Feature feature, float[] column) {
+        if (column.length != framesNum) throw new IllegalArgumentException("Column length doesn't match frames number");
+        columns.put(feature, column);
+    }
+
+    public boolean hasColumn(Feature feature) {
+        return columns.containsKey(feature);
+    }
+
+    /**
+     * Returns the column of the feature, which must have been extracted. Don't modify it.
+     */
+    public float[] getColumn(Feature feature) {
+        float[] column = columns.get(feature);
+        if (column == null) throw new IllegalArgumentException("Feature " + feature + " wasn't extracted");
+        return column;
+    }
+
+    public float get(Feature feature, int frame) {
+        return getColumn(feature)[frame];
+    }
+
+    public int getFramesNum() {
+        return framesNum;
+    }
+
+    public boolean isSilence(int frame) {
+        return Frame.isSilence(get(Feature.VOLUME, frame), get(Feature.ZERO_CROSSING_RATE, frame));
+    }
+
+    public boolean isVoiced(int frame) {
+        return Frame.isVoiced(get(Feature.SHORT_TIME_ENERGY, frame));
+    }
+
+    public boolean isVoiceless(int frame) {
+        return Frame.isVoiceless(get(Feature.VOLUME, frame), get(Feature.SHORT_TIME_ENERGY, frame), get(Feature.ZERO_CROSSING_RATE, frame));
+    }
+}
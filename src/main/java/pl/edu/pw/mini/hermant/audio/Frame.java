@@ -1,64 +1,94 @@
 package pl.edu.pw.mini.hermant.audio;
 
-import org.jetbrains.annotations.Contract;
-import org.jetbrains.annotations.NotNull;
+import pl.edu.pw.mini.hermant.audio.kernel.Kernels;
 import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
-import org.jtransforms.fft.FloatFFT_1D;
 
-import java.util.ArrayList;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class Frame {
-    public static final double SAMPLE_RATE = 44100.0;
-    public static final int SAMPLES_PER_FRAME = 1000;
-    public static final double FRAME_TIME = SAMPLES_PER_FRAME / SAMPLE_RATE;
-    public static final double SAMPLE_TIME = 1.0f / SAMPLE_RATE;
-
-    private List<Float> samples;
+    private static final int MAX_CACHED_SPECTRA = 2;
+    /**
+     * Cepstral peak of a voiced frame per point of the transform. The inverse transform isn't normalized, so the peak
+     * grows with the FFT size; this is the threshold of 12 tuned for a 1000 point transform.
+     */
+    private static final float MIN_CEPSTRAL_PEAK = 12 / 1000f;
+
+    /**
+     * Possibly shared sample array, frame covers {@code samples[offset, offset + length)}.
+     */
+    private final float[] samples;
+    private final int offset;
+    private final int length;
+    private final AnalysisConfig config;
 
     private float volume, ste, zcr;
     private int frameStart;
 
     private float basicToneFrequency;
+    private Map<AudioWindow, SoftReference<Spectrum>> spectra;
+
+    public Frame(float[] samples, int frameStart, int length) {
+        this(samples, frameStart, length, frameStart);
+    }
 
-    public Frame(List<Float> samples, int frameStart) {
+    public Frame(float[] samples, int offset, int length, int frameStart) {
+        this(samples, offset, length, frameStart, AnalysisConfig.getDefault());
+    }
+
+    /**
+     * @param frameStart position of the first sample of the frame within the clip
+     * @param length     at most the frame length of the configuration, shorter frames are zero padded
+     */
+    public Frame(float[] samples, int offset, int length, int frameStart, AnalysisConfig config) {
+        if (length > config.getFrameLength()) throw new IllegalArgumentException("Frame longer than configured: " + length);
         this.samples = samples;
+        this.offset = offset;
+        this.length = length;
         this.frameStart = frameStart;
+        this.config = config;
         calculateVolume();
     }
 
+    /**
+     * Copies the samples of the frame to the destination.
+     */
+    public void copySamples(float[] destination, int destinationOffset) {
+        System.arraycopy(samples, offset, destination, destinationOffset, length);
+    }
+
     public Stream<Float> getSamplesStream() {
-        return samples.stream();
+        return IntStream.range(offset, offset + length).mapToObj(i -> samples[i]);
     }
 
     public float calculateBasicTone(AudioWindow window) {
-        float[] frame = new float[samples.size() * 2];
-        for (int i = 0, samplesSize = samples.size(); i < samplesSize; i++) {
-            Float sample = samples.get(i);
-            sample = sample * window.calculateCoefficient(i, samplesSize);
-            frame[i] = sample;
+        return calculateBasicTone(getSpectrum(window).getMagnitudes(), 0);
+    }
+
+    /**
+     * Base tone from the magnitude spectrum of this frame, {@code magnitudes[offset, offset + bins)}, e.g. a row of
+     * a {@link ShortTimeFourierTransform}, so the frame isn't transformed again.
+     */
+    public float calculateBasicTone(float[] magnitudes, int offset) {
+        FFTWorkspace workspace = FFTWorkspace.get();
+        int fftSize = config.getFftSize();
+        float[] temp = workspace.buffer(fftSize * 2);
+        int size = config.getBins();
+        for (int i = 0; i < size; i++) {
+            temp[i] = (float) Math.log10(magnitudes[offset + i]);
         }
-        FloatFFT_1D fft = new FloatFFT_1D(samples.size());
-        fft.realForwardFull(frame);
-        float[] temp = new float[samples.size() * 2];
-        for (int i = 0; i < samples.size(); i += 2) {
-            float re = frame[i];
-            float im = frame[i + 1];
-            float sig = (float)Math.sqrt(re * re + im * im);
-            sig = (float) Math.log10(sig);
-            temp[i >> 1] = sig;
-        }
-        fft.realInverseFull(temp, false);
+        Arrays.fill(temp, size, fftSize, 0.0f);
+        workspace.plan(fftSize).realInverseFull(temp, false);
         float maxFrequency = 0;
         float maxAmplitude = Float.NEGATIVE_INFINITY;
-        float[] reals = new float[samples.size()];
-        for (int i = 0; i < temp.length; i+=2) {
-            reals[i >> 1] = temp[i];
-        }
-        for (int j = 1; j <= reals.length; j++) {
-            float freq = (float) SAMPLE_RATE / ((float) j);
-            float amp = reals[j - 1];
+        for (int j = 1; j <= fftSize; j++) {
+            float freq = (float) config.getSampleRate() / ((float) j);
+            float amp = temp[2 * (j - 1)];
             if (freq >= 50 && freq <= 400) {
                 if (maxAmplitude < amp) {
                     maxAmplitude = amp;
@@ -66,95 +96,128 @@ public class Frame {
                 }
             }
         }
-        if(maxAmplitude < 12 || volume < 0.1 || maxFrequency == 0 || isSilence()) basicToneFrequency = maxFrequency = 0;
+        if(maxAmplitude < MIN_CEPSTRAL_PEAK * fftSize || volume < 0.1 || maxFrequency == 0 || isSilence()) basicToneFrequency = maxFrequency = 0;
         basicToneFrequency = maxFrequency;
         return basicToneFrequency;
     }
 
     public List<FourierPoint> calculateFrequencies(AudioWindow window) {
-        List<FourierPoint> frequencies = new ArrayList<>();
-        float[] frame = new float[2 * samples.size()];
-        for (int i = 0, samplesSize = samples.size(); i < samplesSize; i++) {
-            Float sample = samples.get(i);
-            sample = sample * window.calculateCoefficient(i, samplesSize);
-            frame[i] = sample;
+        return getSpectrum(window).toFourierPoints();
+    }
+
+    /**
+     * Returns the spectrum of this frame for the given window, transforming the frame only on the first call.
+     * Spectra are softly referenced and only the last {@link #MAX_CACHED_SPECTRA} windows are remembered.
+     */
+    public synchronized Spectrum getSpectrum(AudioWindow window) {
+        if (spectra == null) spectra = new LinkedHashMap<AudioWindow, SoftReference<Spectrum>>(4, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AudioWindow, SoftReference<Spectrum>> eldest) {
+                return size() > MAX_CACHED_SPECTRA;
+            }
+        };
+        SoftReference<Spectrum> reference = spectra.get(window);
+        Spectrum spectrum = reference == null ? null : reference.get();
+        if (spectrum == null) {
+            spectrum = calculateSpectrum(window);
+            spectra.put(window, new SoftReference<>(spectrum));
         }
-        FloatFFT_1D fft = new FloatFFT_1D(samples.size());
-        fft.realForwardFull(frame);
-        for (int i = 0; i < samples.size(); i += 2) {
-            float re = frame[i];
-            float im = frame[i + 1];
-            frequencies.add(TransformComplex(re, im, i >> 1));
+        return spectrum;
+    }
+
+    private Spectrum calculateSpectrum(AudioWindow window) {
+        float[] magnitudes = new float[config.getBins()];
+        transform(window, magnitudes, 0);
+        return new Spectrum(magnitudes, config);
+    }
+
+    /**
+     * Writes the magnitudes of the windowed, zero padded frame to {@code magnitudes[offset, offset + bins)} without
+     * caching them, transforming it with the plan of the calling thread.
+     */
+    void transform(AudioWindow window, float[] magnitudes, int offset) {
+        FFTWorkspace workspace = FFTWorkspace.get();
+        int fftSize = config.getFftSize();
+        float[] frame = workspace.buffer(fftSize);
+        window.apply(samples, this.offset, frame, 0, length);
+        Arrays.fill(frame, length, fftSize, 0.0f);
+        workspace.plan(fftSize).realForward(frame);
+        magnitudes[offset] = (float) Math.sqrt(frame[0] * frame[0]); // frame[1] is the real part at the Nyquist frequency
+        for (int bin = 1, bins = config.getBins(); bin < bins; bin++) {
+            float re = frame[2 * bin];
+            float im = frame[2 * bin + 1];
+            magnitudes[offset + bin] = (float) Math.sqrt(re * re + im * im);
         }
-        return frequencies;
-    }
-
-    @Contract("_, _, _ -> new")
-    private static @NotNull FourierPoint TransformComplex(float re, float im, int index) {
-        float frequency = (float) index / SAMPLES_PER_FRAME * (float) SAMPLE_RATE;
-        float amplitude = (float) Math.sqrt(re * re + im * im) * 100f / SAMPLES_PER_FRAME;
-        return new FourierPoint(frequency, amplitude);
     }
 
     public void calculateVolume() {
-        volume = 0.0f;
-        for (Float sample : samples) volume += sample * sample;
-        ste = (volume /= SAMPLES_PER_FRAME);
+        ste = Kernels.get().sumOfSquares(samples, offset, length) / config.getFrameLength();
         volume = (float) Math.sqrt(ste);
     }
 
     public void calculateZeroCrossingRate() {
-        zcr = 0.0f;
-        for (int i = 0, samplesSize = samples.size(); i < samplesSize - 1; i++) {
-            float sample = samples.get(i);
-            float nextSample = samples.get(i + 1);
-            if ((Math.signum(sample) - Math.signum(nextSample)) != 0) zcr += 1.0f;
-        }
-        zcr *= (float) samples.size() / SAMPLES_PER_FRAME;
+        zcr = Kernels.get().signChanges(samples, offset, length) * ((float) length / config.getFrameLength());
     }
 
     public float calculateFrequencyVolume(AudioWindow window, float minFreq, float maxFreq) {
-        List<FourierPoint> frequencies = calculateFrequencies(window);
+        Spectrum spectrum = getSpectrum(window);
         float fVolume = 0;
-        for (FourierPoint frequency : frequencies) {
-            if(frequency.frequency < minFreq || frequency.frequency > maxFreq) continue;
-            fVolume += frequency.amplitude * frequency.amplitude;
+        for (int i = 0, size = spectrum.size(); i < size; i++) {
+            float frequency = spectrum.getFrequency(i);
+            if(frequency < minFreq || frequency > maxFreq) continue;
+            float amplitude = spectrum.getAmplitude(i);
+            fVolume += amplitude * amplitude;
         }
-        return fVolume / frequencies.size();
+        return fVolume / spectrum.size();
     }
 
     public float calculateFrequencyCentroid(AudioWindow window) {
-        List<FourierPoint> frequencies = calculateFrequencies(window);
+        Spectrum spectrum = getSpectrum(window);
         float fCentroid = 0;
         float temp = 0;
-        for (FourierPoint frequency : frequencies) {
-            fCentroid += frequency.amplitude * frequency.frequency;
-            temp += frequency.amplitude;
+        for (int i = 0, size = spectrum.size(); i < size; i++) {
+            float amplitude = spectrum.getAmplitude(i);
+            fCentroid += amplitude * spectrum.getFrequency(i);
+            temp += amplitude;
         }
         return fCentroid / temp;
     }
 
     public float calculateEffectiveBandwidth(AudioWindow window) {
-        List<FourierPoint> frequencies = calculateFrequencies(window);
+        Spectrum spectrum = getSpectrum(window);
         float fCentroid = calculateFrequencyCentroid(window);
         float bandwidth = 0;
         float temp = 0;
-        for (FourierPoint frequency : frequencies) {
-            bandwidth += (frequency.frequency - fCentroid) * (frequency.frequency - fCentroid) * (frequency.amplitude * frequency.amplitude);
-            temp += frequency.amplitude * frequency.amplitude;
+        for (int i = 0, size = spectrum.size(); i < size; i++) {
+            float amplitude = spectrum.getAmplitude(i);
+            float frequency = spectrum.getFrequency(i);
+            bandwidth += (frequency - fCentroid) * (frequency - fCentroid) * (amplitude * amplitude);
+            temp += amplitude * amplitude;
         }
         return (float)Math.sqrt(bandwidth / temp);
     }
 
     public boolean isVoiceless() {
-        return ste < 0.005 && !isSilence();
+        return isVoiceless(volume, ste, zcr);
     }
 
     public boolean isVoiced() {
-        return ste > 0.005;
+        return isVoiced(ste);
     }
 
     public boolean isSilence() {
+        return isSilence(volume, zcr);
+    }
+
+    public static boolean isVoiceless(float volume, float ste, float zcr) {
+        return ste < 0.005 && !isSilence(volume, zcr);
+    }
+
+    public static boolean isVoiced(float ste) {
+        return ste > 0.005;
+    }
+
+    public static boolean isSilence(float volume, float zcr) {
         return (zcr > 48 && volume < 0.02) || (volume < 0.01 && zcr > 24) || volume < 0.005;
     }
 
@@ -173,4 +236,12 @@ public class Frame {
     public int getFrameStart() {
         return frameStart;
     }
+
+    public int getLength() {
+        return length;
+    }
+
+    public AnalysisConfig getConfig() {
+        return config;
+    }
 }
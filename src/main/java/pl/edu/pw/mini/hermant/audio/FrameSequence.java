@@ -0,0 +1,63 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Overlapping frames over a shared sample array, described only by the hop between frame starts.
+ * Frames are created, and their volume calculated, only when accessed, so taking a {@link #subList(int, int)}
+ * and iterating over it costs as much as the frames in that range. Every {@link #get(int)} creates a new frame,
+ * copy the range to a list when the frames are visited more than once to keep their cached spectra.
+ */
+public class FrameSequence extends AbstractList<Frame> implements RandomAccess {
+    private final float[] samples;
+    private final AnalysisConfig config;
+    private final int hop;
+    private final int size;
+
+    public FrameSequence(SampleBuffer samples, float overlap, AnalysisConfig config) {
+        this.samples = samples.array();
+        this.config = config;
+        this.hop = getHop(overlap, config);
+        this.size = getFramesNum(samples.size(), overlap, config);
+    }
+
+    public static int getHop(float overlap, AnalysisConfig config) {
+        int advance = (int) ((1 - overlap) * config.getFrameLength());
+        return advance <= 0 ? 1 : advance;
+    }
+
+    /**
+     * Number of frames starting at multiples of the hop for which {@code frameStart + frameLength < samplesNum}.
+     */
+    public static int getFramesNum(int samplesNum, float overlap, AnalysisConfig config) {
+        int last = samplesNum - config.getFrameLength();
+        if (last <= 0) return 0;
+        int hop = getHop(overlap, config);
+        return (int) (((long) last + hop - 1) / hop);
+    }
+
+    @Override
+    public Frame get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int frameStart = getFrameStart(index);
+        return new Frame(samples, frameStart, config.getFrameLength(), frameStart, config);
+    }
+
+    public int getFrameStart(int index) {
+        return index * hop;
+    }
+
+    public AnalysisConfig getConfig() {
+        return config;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
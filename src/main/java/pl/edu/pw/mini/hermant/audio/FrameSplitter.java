@@ -0,0 +1,69 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import pl.edu.pw.mini.hermant.io.SampleSink;
+
+import java.util.function.Consumer;
+
+/**
+ * Cuts a stream of samples into frames starting every hop samples of the configuration.
+ * Each frame gets its own array with volume and ZCR already calculated and is passed on as soon as it's complete.
+ */
+public class FrameSplitter implements SampleSink {
+    private final AnalysisConfig config;
+    private final Consumer<Frame> consumer;
+    private float[] current;
+    private int filled;
+    private int frameStart;
+
+    public FrameSplitter(Consumer<Frame> consumer) {
+        this(AnalysisConfig.getDefault(), consumer);
+    }
+
+    public FrameSplitter(AnalysisConfig config, Consumer<Frame> consumer) {
+        this.config = config;
+        this.consumer = consumer;
+        current = new float[config.getFrameLength()];
+    }
+
+    /**
+     * Whether a last frame shorter than the frame length is analyzed: it needs more than a tenth of a frame of samples
+     * and, after another frame, samples that frame doesn't have.
+     */
+    static boolean isLastFrameKept(int length, boolean previousFrame, AnalysisConfig config) {
+        int overlap = previousFrame ? config.getFrameLength() - config.getHop() : 0;
+        return length > config.getFrameLength() / 10 && length > overlap;
+    }
+
+    @Override
+    public void accept(float[] samples, int offset, int length) {
+        while (length > 0) {
+            int count = Math.min(length, current.length - filled);
+            System.arraycopy(samples, offset, current, filled, count);
+            filled += count;
+            offset += count;
+            length -= count;
+            if (filled == current.length) {
+                emit(filled);
+                float[] next = new float[current.length];
+                filled = current.length - config.getHop();
+                System.arraycopy(current, config.getHop(), next, 0, filled);
+                current = next;
+                frameStart += config.getHop();
+            }
+        }
+    }
+
+    /**
+     * Passes on the last, incomplete frame if it's long enough, the same way {@link Clip} does.
+     */
+    public void finish() {
+        if (isLastFrameKept(filled, frameStart > 0, config)) emit(filled);
+        filled = 0;
+    }
+
+    private void emit(int length) {
+        Frame frame = new Frame(current, 0, length, frameStart, config);
+        frame.calculateZeroCrossingRate();
+        consumer.accept(frame);
+    }
+}
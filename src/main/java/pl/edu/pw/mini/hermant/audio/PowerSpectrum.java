@@ -0,0 +1,133 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Power spectrum averaged over a sequence of windowed frames, i.e. Welch's estimate of the power spectral density
+ * when the frames overlap. Bins are the same as the ones of a {@link Spectrum} of a full frame.
+ */
+public class PowerSpectrum {
+    private static final int BLOCK_SIZE = 2048;
+
+    private final float[] power;
+    private final int framesNum;
+    private final double windowPower;
+    private final AnalysisConfig config;
+
+    public PowerSpectrum(float[] power, int framesNum, double windowPower, AnalysisConfig config) {
+        this.power = power;
+        this.framesNum = framesNum;
+        this.windowPower = windowPower;
+        this.config = config;
+    }
+
+    public static PowerSpectrum average(List<Frame> frames, AudioWindow window, AnalysisConfig config) {
+        return average(frames, window, config, averaged -> {
+        });
+    }
+
+    /**
+     * Averages the squared magnitudes of the frames in blocks of {@value BLOCK_SIZE} frames, each block is transformed
+     * by a {@link ShortTimeFourierTransform} and reduced in parallel into per-thread arrays. Frames shorter than the
+     * configured frame length are skipped, zero padding lowers their power. Between the blocks the number of frames
+     * averaged so far is reported and the calling thread is checked for an interrupt.
+     *
+     * @throws CancellationException if the calling thread is interrupted, the interrupt status stays set
+     */
+    public static PowerSpectrum average(List<Frame> frames, AudioWindow window, AnalysisConfig config, IntConsumer progress) {
+        int bins = config.getBins();
+        double[] sum = new double[bins + 1];
+        ShortTimeFourierTransform transform = new ShortTimeFourierTransform(window, config);
+        float[] magnitudes = new float[Math.min(BLOCK_SIZE, frames.size()) * bins];
+        for (int from = 0; from < frames.size(); from += BLOCK_SIZE) {
+            if (Thread.currentThread().isInterrupted()) throw new CancellationException("Averaging spectra interrupted");
+            int to = Math.min(from + BLOCK_SIZE, frames.size());
+            transform.transform(frames, from, to, magnitudes, 0);
+            int blockFrom = from;
+            double[] block = IntStream.range(from, to).parallel().collect(() -> new double[bins + 1],
+                    (accumulator, i) -> accumulate(accumulator, frames.get(i), magnitudes, (i - blockFrom) * bins, config),
+                    PowerSpectrum::combine);
+            combine(sum, block);
+            progress.accept(to);
+        }
+        int framesNum = (int) sum[bins];
+        float[] power = new float[bins];
+        for (int bin = 0; bin < bins && framesNum > 0; bin++) power[bin] = (float) (sum[bin] / framesNum);
+        double windowPower = 0;
+        for (float coefficient : window.getCoefficients(config.getFrameLength())) windowPower += coefficient * coefficient;
+        return new PowerSpectrum(power, framesNum, windowPower, config);
+    }
+
+    /**
+     * Adds the squared magnitudes of the frame, {@code magnitudes[offset, offset + bins)}, to the first bins of
+     * the accumulator and counts it in the last one.
+     */
+    private static void accumulate(double[] accumulator, Frame frame, float[] magnitudes, int offset, AnalysisConfig config) {
+        if (frame.getLength() != config.getFrameLength()) return;
+        for (int bin = 0, size = config.getBins(); bin < size; bin++) {
+            float magnitude = magnitudes[offset + bin];
+            accumulator[bin] += magnitude * magnitude;
+        }
+        accumulator[accumulator.length - 1]++;
+    }
+
+    private static void combine(double[] accumulator, double[] other) {
+        for (int i = 0; i < accumulator.length; i++) accumulator[i] += other[i];
+    }
+
+    public int size() {
+        return power.length;
+    }
+
+    /**
+     * Number of frames averaged.
+     */
+    public int getFramesNum() {
+        return framesNum;
+    }
+
+    public float getFrequency(int bin) {
+        return config.getFrequency(bin);
+    }
+
+    /**
+     * Mean squared magnitude of the fourier transform.
+     */
+    public float getPower(int bin) {
+        return power[bin];
+    }
+
+    /**
+     * Root mean square of the amplitudes, on the scale of {@link Spectrum#getAmplitude(int)}.
+     */
+    public float getAmplitude(int bin) {
+        return (float) Math.sqrt(power[bin]) * 100f / config.getFrameLength();
+    }
+
+    /**
+     * One-sided power spectral density in units squared per hertz, normalized by the power of the window.
+     */
+    public float getDensity(int bin) {
+        double density = power[bin] / (config.getSampleRate() * windowPower);
+        return (float) (bin == 0 ? density : 2 * density);
+    }
+
+    /**
+     * Returns a copy of the averaged powers.
+     */
+    public float[] toArray() {
+        return power.clone();
+    }
+
+    public List<FourierPoint> toFourierPoints() {
+        List<FourierPoint> points = new ArrayList<>(power.length);
+        for (int i = 0; i < power.length; i++) points.add(new FourierPoint(getFrequency(i), getAmplitude(i)));
+        return points;
+    }
+}
@@ -0,0 +1,68 @@
+package pl.edu.pw.mini.hermant.audio;
+
+/**
+ * Clip-level characteristics of the last {@code windowFrames} frames of a stream.
+ * Uses the same definitions as {@link ClipStatistics}, with the average short time energy of the frames in the window
+ * standing in for the energy of the whole clip.
+ */
+public class RollingStatistics {
+    private final float[] energies;
+    private final float[] zcrs;
+    private int next;
+    private int count;
+    private double energySum, zcrSum;
+
+    public RollingStatistics(int windowFrames) {
+        energies = new float[windowFrames];
+        zcrs = new float[windowFrames];
+    }
+
+    public void addFrame(float ste, float zcr) {
+        if (count == energies.length) {
+            energySum -= energies[next];
+            zcrSum -= zcrs[next];
+        } else count++;
+        energies[next] = ste;
+        zcrs[next] = zcr;
+        energySum += ste;
+        zcrSum += zcr;
+        next = (next + 1) % energies.length;
+    }
+
+    public int getFramesNum() {
+        return count;
+    }
+
+    public float getShortTimeEnergy() {
+        return count == 0 ? 0.0f : (float) (energySum / count);
+    }
+
+    public float getAverageZeroCrossingRate() {
+        return count == 0 ? 0.0f : (float) (zcrSum / count);
+    }
+
+    public float getLowShortTimeEnergyRatio() {
+        float ste = getShortTimeEnergy();
+        float sum = 0.0f;
+        for (int i = 0; i < count; i++) sum += Math.signum(0.5f * ste - energies[i]) + 1;
+        return sum / (2 * count);
+    }
+
+    public float getHighZeroCrossingRateRatio() {
+        float avgZCR = getAverageZeroCrossingRate();
+        float sum = 0.0f;
+        for (int i = 0; i < count; i++) sum += Math.signum(zcrs[i] - 1.5f * avgZCR) + 1;
+        return sum / (2 * count);
+    }
+
+    public float getStandardDeviationOfTheZCR() {
+        float avgZCR = getAverageZeroCrossingRate();
+        float sum = 0.0f;
+        for (int i = 0; i < count; i++) sum += (zcrs[i] - avgZCR) * (zcrs[i] - avgZCR);
+        return (float) Math.sqrt(sum / count);
+    }
+
+    public boolean isMusic() {
+        return getLowShortTimeEnergyRatio() < 0.5f;
+    }
+}
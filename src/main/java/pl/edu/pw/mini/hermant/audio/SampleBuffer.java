@@ -0,0 +1,79 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Growable buffer of primitive float samples.
+ * Stores 4 bytes per sample instead of a boxed {@link Float} per sample.
+ */
+public class SampleBuffer {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private float[] samples;
+    private int size;
+
+    public SampleBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SampleBuffer(int capacity) {
+        samples = new float[Math.max(capacity, 1)];
+    }
+
+    public SampleBuffer(float[] samples) {
+        this.samples = samples;
+        this.size = samples.length;
+    }
+
+    public void add(float sample) {
+        ensureCapacity(size + 1);
+        samples[size++] = sample;
+    }
+
+    public void add(float[] buffer, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(buffer, offset, samples, size, length);
+        size += length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= samples.length) return;
+        int newCapacity = samples.length + (samples.length >> 1);
+        if (newCapacity < capacity) newCapacity = capacity;
+        samples = Arrays.copyOf(samples, newCapacity);
+    }
+
+    /**
+     * Shrinks the backing array to the number of stored samples.
+     */
+    public void trim() {
+        if (samples.length != size) samples = Arrays.copyOf(samples, size);
+    }
+
+    public float get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return samples[index];
+    }
+
+    /**
+     * Returns the backing array, which may be longer than {@link #size()}.
+     * The array is replaced when the buffer grows, so don't hold on to it while adding samples.
+     */
+    public float[] array() {
+        return samples;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Stream<Float> stream() {
+        return stream(0, size);
+    }
+
+    public Stream<Float> stream(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> samples[i]);
+    }
+}
@@ -0,0 +1,136 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Magnitude spectra of a range of frames transformed as a batch into a single matrix, frame after frame, with the
+ * bins of a frame next to each other. Values are the same as the ones of {@link Frame#getSpectrum(AudioWindow)},
+ * but no {@link Spectrum} is created or cached per frame.
+ * <p>
+ * The range is split into one contiguous part per worker and every worker transforms its frames one after another
+ * with the plan of its thread from {@link FFTWorkspace}, which never starts threads of its own. Workers are daemon
+ * threads of a pool shared by all transforms with the same number of workers, so at most that many frames are
+ * transformed at once and the threads keep their plans between calls. A single part is transformed on the calling
+ * thread.
+ */
+public class ShortTimeFourierTransform {
+    private static final int BLOCK_SIZE = 8192;
+    private static final int MIN_WORKER_FRAMES = 64;
+    private static final Map<Integer, ExecutorService> POOLS = new ConcurrentHashMap<>();
+
+    private final AudioWindow window;
+    private final AnalysisConfig config;
+    private final int workers;
+
+    public ShortTimeFourierTransform(AudioWindow window, AnalysisConfig config) {
+        this(window, config, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShortTimeFourierTransform(AudioWindow window, AnalysisConfig config, int workers) {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is required");
+        this.window = window;
+        this.config = config;
+        this.workers = workers;
+    }
+
+    public AudioWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * Number of magnitudes of every frame.
+     */
+    public int getBins() {
+        return config.getBins();
+    }
+
+    public float[] transform(List<Frame> frames) {
+        return transform(frames, 0, frames.size(), transformed -> {
+        });
+    }
+
+    /**
+     * Transforms the frames [from, to) in blocks of {@value BLOCK_SIZE} frames. Between the blocks the number of
+     * frames transformed so far is reported and the calling thread is checked for an interrupt.
+     *
+     * @return magnitudes of frame {@code from + i} at {@code [i * bins, (i + 1) * bins)}
+     * @throws CancellationException if the calling thread is interrupted, the interrupt status stays set
+     */
+    public float[] transform(List<Frame> frames, int from, int to, IntConsumer progress) {
+        int bins = getBins();
+        if ((long) (to - from) * bins > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many frames for a single matrix: " + (to - from));
+        float[] magnitudes = new float[(to - from) * bins];
+        for (int blockFrom = from; blockFrom < to; blockFrom += BLOCK_SIZE) {
+            if (Thread.currentThread().isInterrupted()) throw new CancellationException("Transforming frames interrupted");
+            int blockTo = Math.min(blockFrom + BLOCK_SIZE, to);
+            transform(frames, blockFrom, blockTo, magnitudes, (blockFrom - from) * bins);
+            progress.accept(blockTo - from);
+        }
+        return magnitudes;
+    }
+
+    /**
+     * Writes the magnitudes of the frames [from, to) to the matrix starting at the offset, e.g. to reuse a matrix
+     * for consecutive blocks of frames. Frames must have the configuration of this transform.
+     *
+     * @throws CancellationException if the calling thread is interrupted while waiting for the workers, the interrupt
+     *                               status stays set
+     */
+    public void transform(List<Frame> frames, int from, int to, float[] magnitudes, int offset) {
+        int bins = getBins();
+        int framesNum = to - from;
+        if (framesNum <= 0) return;
+        if (frames.get(from).getConfig().getBins() != bins)
+            throw new IllegalArgumentException("Frames have " + frames.get(from).getConfig().getBins() + " bins instead of " + bins);
+        int parts = Math.max(1, Math.min(workers, framesNum / MIN_WORKER_FRAMES));
+        if (parts == 1) {
+            transformPart(frames, from, to, magnitudes, offset);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(parts);
+        for (int part = 0; part < parts; part++) {
+            int partFrom = from + (int) ((long) framesNum * part / parts);
+            int partTo = from + (int) ((long) framesNum * (part + 1) / parts);
+            tasks.add(() -> {
+                transformPart(frames, partFrom, partTo, magnitudes, offset + (partFrom - from) * bins);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : pool(workers).invokeAll(tasks)) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Transforming frames interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void transformPart(List<Frame> frames, int from, int to, float[] magnitudes, int offset) {
+        int bins = getBins();
+        for (int i = from; i < to; i++) frames.get(i).transform(window, magnitudes, offset + (i - from) * bins);
+    }
+
+    private static ExecutorService pool(int workers) {
+        return POOLS.computeIfAbsent(workers, size -> Executors.newFixedThreadPool(size, task -> {
+            Thread thread = new Thread(task, "stft-worker");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+}
@@ -0,0 +1,144 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import java.util.Arrays;
+
+/**
+ * Clip-level characteristics of a window sliding over the frames of a recording whose frame features are all known.
+ * Measures the same quantities as {@link RollingStatistics}, but frames enter and leave the window without a rescan
+ * of it: energy and ZCR sums are updated in O(1) and the frames below the low energy and above the high ZCR thresholds
+ * are counted by Fenwick trees over the ranks of the values of the whole recording, in O(log n) per frame and query.
+ * <p>
+ * The standard deviation of the ZCR comes from running sums of the rates and their squares instead of the two passes
+ * of {@link ClipStatistics}. The rates are summed as differences from the average of the whole recording, so the
+ * squares stay small and the result differs from the two-pass one only by rounding.
+ */
+public class SlidingStatistics {
+    private final float[] energies;
+    private final float[] zcrs;
+    private final RankCounter energyRanks;
+    private final RankCounter zcrRanks;
+    private final double zcrOffset;
+    private int count;
+    private double energySum, zcrSum, zcrDeviationSum, zcrSquaresSum;
+
+    /**
+     * @param energies short time energies of all frames
+     * @param zcrs     zero crossing rates of all frames
+     */
+    public SlidingStatistics(float[] energies, float[] zcrs, int framesNum) {
+        this.energies = energies;
+        this.zcrs = zcrs;
+        energyRanks = new RankCounter(energies, framesNum);
+        zcrRanks = new RankCounter(zcrs, framesNum);
+        double sum = 0;
+        for (int i = 0; i < framesNum; i++) sum += zcrs[i];
+        zcrOffset = framesNum == 0 ? 0 : sum / framesNum;
+    }
+
+    /**
+     * Adds the frame with the given index to the window.
+     */
+    public void add(int frame) {
+        update(frame, 1);
+    }
+
+    /**
+     * Removes the frame with the given index, which must be in the window.
+     */
+    public void remove(int frame) {
+        update(frame, -1);
+    }
+
+    private void update(int frame, int delta) {
+        float ste = energies[frame], zcr = zcrs[frame];
+        count += delta;
+        energySum += delta * ste;
+        zcrSum += delta * zcr;
+        double deviation = zcr - zcrOffset;
+        zcrDeviationSum += delta * deviation;
+        zcrSquaresSum += delta * deviation * deviation;
+        energyRanks.update(ste, delta);
+        zcrRanks.update(zcr, delta);
+    }
+
+    public int getFramesNum() {
+        return count;
+    }
+
+    public float getShortTimeEnergy() {
+        return count == 0 ? 0.0f : (float) (energySum / count);
+    }
+
+    public float getAverageZeroCrossingRate() {
+        return count == 0 ? 0.0f : (float) (zcrSum / count);
+    }
+
+    /**
+     * Frames with energy equal to the threshold count as half, as in {@link ClipStatistics}.
+     */
+    public float getLowShortTimeEnergyRatio() {
+        float threshold = 0.5f * getShortTimeEnergy();
+        return (float) (energyRanks.countBelow(threshold) + energyRanks.countAtMost(threshold)) / (2 * count);
+    }
+
+    public float getHighZeroCrossingRateRatio() {
+        float threshold = 1.5f * getAverageZeroCrossingRate();
+        return (float) (2 * count - zcrRanks.countAtMost(threshold) - zcrRanks.countBelow(threshold)) / (2 * count);
+    }
+
+    public float getStandardDeviationOfTheZCR() {
+        double averageDeviation = zcrDeviationSum / count;
+        return (float) Math.sqrt(Math.max(0, zcrSquaresSum / count - averageDeviation * averageDeviation));
+    }
+
+    public boolean isMusic() {
+        return getLowShortTimeEnergyRatio() < 0.5f;
+    }
+
+    /**
+     * Fenwick tree counting values of the window by their position among the sorted values of the recording.
+     * Equal values share the position of the first of them.
+     */
+    private static class RankCounter {
+        private final float[] sorted;
+        private final int[] tree;
+
+        RankCounter(float[] values, int size) {
+            sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            tree = new int[size + 1];
+        }
+
+        void update(float value, int delta) {
+            for (int i = bound(value, false) + 1; i < tree.length; i += i & -i) tree[i] += delta;
+        }
+
+        int countBelow(float threshold) {
+            return prefix(bound(threshold, false));
+        }
+
+        int countAtMost(float threshold) {
+            return prefix(bound(threshold, true));
+        }
+
+        private int prefix(int end) {
+            int sum = 0;
+            for (int i = end; i > 0; i -= i & -i) sum += tree[i];
+            return sum;
+        }
+
+        /**
+         * @return index of the first sorted value not less than, or if inclusive greater than, the value
+         */
+        private int bound(float value, boolean inclusive) {
+            int low = 0, high = sorted.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = Float.compare(sorted[middle], value);
+                if (comparison < 0 || inclusive && comparison == 0) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+}
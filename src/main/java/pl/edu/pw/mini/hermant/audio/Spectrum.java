@@ -0,0 +1,49 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Magnitude spectrum of a single windowed, zero padded frame, bins from 0 up to the Nyquist frequency.
+ */
+public class Spectrum {
+    private final float[] magnitudes;
+    private final AnalysisConfig config;
+
+    public Spectrum(float[] magnitudes, AnalysisConfig config) {
+        this.magnitudes = magnitudes;
+        this.config = config;
+    }
+
+    public int size() {
+        return magnitudes.length;
+    }
+
+    public float getFrequency(int bin) {
+        return config.getFrequency(bin);
+    }
+
+    public float getAmplitude(int bin) {
+        return magnitudes[bin] * 100f / config.getFrameLength();
+    }
+
+    /**
+     * Raw magnitude of the fourier transform.
+     */
+    public float getMagnitude(int bin) {
+        return magnitudes[bin];
+    }
+
+    /**
+     * The magnitudes themselves, don't modify them.
+     */
+    float[] getMagnitudes() {
+        return magnitudes;
+    }
+
+    public List<FourierPoint> toFourierPoints() {
+        List<FourierPoint> points = new ArrayList<>(magnitudes.length);
+        for (int i = 0; i < magnitudes.length; i++) points.add(new FourierPoint(getFrequency(i), getAmplitude(i)));
+        return points;
+    }
+}
@@ -0,0 +1,63 @@
+package pl.edu.pw.mini.hermant.audio.kernel;
+
+/**
+ * Per-sample loops of the time domain features and windowing.
+ * On a JDK with the incubating Vector API, when the application is run with
+ * {@code --add-modules jdk.incubator.vector}, {@link #get()} returns an implementation using SIMD instructions
+ * explicitly. It's compiled from {@code src/main/java17} into the versioned part of the multi-release jar. Versioned
+ * classes are only looked up in a jar, running from a directory needs its {@code META-INF/versions/17} on the class path.
+ * Everywhere else, or with {@code -Dsoundanalyzer.kernels=scalar}, the scalar implementation is used.
+ * Results of the implementations can differ in the last bits because sums are accumulated in a different order.
+ */
+public abstract class Kernels {
+    public static final String PROPERTY = "soundanalyzer.kernels";
+    private static final String VECTOR_KERNELS = "pl.edu.pw.mini.hermant.audio.kernel.VectorKernels";
+    private static final Kernels SCALAR = new ScalarKernels();
+    private static final Kernels VECTOR = loadVectorKernels();
+    private static final Kernels DEFAULT = VECTOR == null || "scalar".equals(System.getProperty(PROPERTY)) ? SCALAR : VECTOR;
+
+    public static Kernels get() {
+        return DEFAULT;
+    }
+
+    public static Kernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return the Vector API implementation or null if it isn't available on this JDK
+     */
+    public static Kernels vector() {
+        return VECTOR;
+    }
+
+    private static Kernels loadVectorKernels() {
+        try {
+            return (Kernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public abstract String getName();
+
+    /**
+     * Sum of {@code samples[i] * samples[i]} over {@code [offset, offset + length)}.
+     */
+    public abstract float sumOfSquares(float[] samples, int offset, int length);
+
+    /**
+     * Number of neighbouring pairs in {@code [offset, offset + length)} whose {@link Math#signum(float)} differs.
+     */
+    public abstract int signChanges(float[] samples, int offset, int length);
+
+    /**
+     * Writes {@code source[sourceOffset + i] * coefficients[i]} to {@code destination[destinationOffset + i]}.
+     */
+    public abstract void multiply(float[] source, int sourceOffset, float[] coefficients, float[] destination, int destinationOffset, int length);
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,51 @@
+package pl.edu.pw.mini.hermant.audio.kernel;
+
+/**
+ * Portable kernels. Sums use four independent accumulators, so consecutive additions don't wait for each other,
+ * and sign changes are counted without branches.
+ */
+class ScalarKernels extends Kernels {
+    @Override
+    public String getName() {
+        return "Scalar";
+    }
+
+    @Override
+    public float sumOfSquares(float[] samples, int offset, int length) {
+        float sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = offset, end = offset + length;
+        for (; i <= end - 4; i += 4) {
+            sum0 += samples[i] * samples[i];
+            sum1 += samples[i + 1] * samples[i + 1];
+            sum2 += samples[i + 2] * samples[i + 2];
+            sum3 += samples[i + 3] * samples[i + 3];
+        }
+        for (; i < end; i++) sum0 += samples[i] * samples[i];
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public int signChanges(float[] samples, int offset, int length) {
+        int changes = 0;
+        for (int i = offset, end = offset + length - 1; i < end; i++) {
+            int difference = sign(samples[i]) ^ sign(samples[i + 1]);
+            changes += (difference | -difference) >>> 31;
+        }
+        return changes;
+    }
+
+    /**
+     * 0 for zeros, 1 for positive and 2 for negative samples, computed from the bits without branching.
+     */
+    private static int sign(float sample) {
+        int bits = Float.floatToRawIntBits(sample);
+        int magnitude = bits & 0x7fffffff;
+        int nonZero = (magnitude | -magnitude) >>> 31;
+        return nonZero + (nonZero & bits >>> 31);
+    }
+
+    @Override
+    public void multiply(float[] source, int sourceOffset, float[] coefficients, float[] destination, int destinationOffset, int length) {
+        for (int i = 0; i < length; i++) destination[destinationOffset + i] = source[sourceOffset + i] * coefficients[i];
+    }
+}
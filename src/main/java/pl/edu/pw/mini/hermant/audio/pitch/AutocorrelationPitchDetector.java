@@ -0,0 +1,54 @@
+package pl.edu.pw.mini.hermant.audio.pitch;
+
+import pl.edu.pw.mini.hermant.audio.FFTWorkspace;
+
+/**
+ * Peak of the autocorrelation normalized by the energy of the overlapping parts, so it's 1 for a perfectly periodic
+ * frame at any lag. To avoid octave errors the shortest lag whose peak is almost as high as the highest one wins.
+ */
+public class AutocorrelationPitchDetector extends CorrelationPitchDetector {
+    public static final float DEFAULT_THRESHOLD = 0.7f;
+    private static final float PEAK_TOLERANCE = 0.9f;
+
+    private final float threshold;
+
+    public AutocorrelationPitchDetector() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold minimum normalized correlation of a voiced frame, between 0 and 1
+     */
+    public AutocorrelationPitchDetector(float threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "Autocorrelation (threshold = " + threshold + ")";
+    }
+
+    @Override
+    protected float findLag(float[] correlation, float[] energy, int length, int minLag, int maxLag, FFTWorkspace workspace) {
+        float[] normalized = workspace.buffer(SCRATCH, maxLag + 2);
+        float total = energy[length];
+        float max = 0;
+        for (int lag = minLag - 1; lag <= maxLag + 1; lag++) {
+            float head = energy[length - lag];
+            float tail = total - energy[lag];
+            normalized[lag] = head > 0 && tail > 0 ? correlation[lag] / (float) Math.sqrt(head * tail) : 0;
+            if (lag >= minLag && lag <= maxLag) max = Math.max(max, normalized[lag]);
+        }
+        if (max < threshold) return 0;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            float value = normalized[lag];
+            if (value >= PEAK_TOLERANCE * max && value >= normalized[lag - 1] && value >= normalized[lag + 1])
+                return lag + interpolate(normalized[lag - 1], value, normalized[lag + 1]);
+        }
+        return 0;
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+}
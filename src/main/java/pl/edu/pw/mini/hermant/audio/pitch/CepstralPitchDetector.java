@@ -0,0 +1,36 @@
+package pl.edu.pw.mini.hermant.audio.pitch;
+
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+
+/**
+ * The base tone of {@link Frame#calculateBasicTone(AudioWindow)}, the highest peak of the cepstrum of the windowed
+ * frame. Reuses the cached spectrum of the frame, so it's cheap when the spectral features are extracted anyway.
+ */
+public class CepstralPitchDetector implements PitchDetector {
+    private final AudioWindow window;
+
+    public CepstralPitchDetector(AudioWindow window) {
+        this.window = window;
+    }
+
+    @Override
+    public String getName() {
+        return "Cepstrum (" + window.getName() + ")";
+    }
+
+    @Override
+    public float detect(Frame frame) {
+        return frame.calculateBasicTone(window);
+    }
+
+    @Override
+    public boolean usesSpectrum(AudioWindow window) {
+        return this.window.equals(window);
+    }
+
+    @Override
+    public float detect(Frame frame, float[] magnitudes, int offset) {
+        return frame.calculateBasicTone(magnitudes, offset);
+    }
+}
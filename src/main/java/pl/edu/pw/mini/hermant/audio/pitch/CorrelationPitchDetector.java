@@ -0,0 +1,82 @@
+package pl.edu.pw.mini.hermant.audio.pitch;
+
+import org.jtransforms.fft.FloatFFT_1D;
+import pl.edu.pw.mini.hermant.audio.FFTWorkspace;
+import pl.edu.pw.mini.hermant.audio.Frame;
+
+import java.util.Arrays;
+
+/**
+ * Base of the detectors working on the autocorrelation of the frame in the time domain.
+ * The autocorrelation is computed with a zero padded FFT, i.e. in O(n log n) instead of O(n * lags), into the per
+ * thread buffers of {@link FFTWorkspace}, and only the lags of the frequencies in
+ * [{@value MIN_FREQUENCY}, {@value MAX_FREQUENCY}] are searched.
+ */
+public abstract class CorrelationPitchDetector implements PitchDetector {
+    protected static final int CORRELATION = 0;
+    protected static final int ENERGY = 1;
+    protected static final int SCRATCH = 2;
+
+    @Override
+    public float detect(Frame frame) {
+        int length = frame.getLength();
+        double sampleRate = frame.getConfig().getSampleRate();
+        int minLag = Math.max(2, (int) Math.floor(sampleRate / MAX_FREQUENCY));
+        int maxLag = Math.min(length - 2, (int) Math.ceil(sampleRate / MIN_FREQUENCY));
+        if (minLag >= maxLag) return 0;
+        FFTWorkspace workspace = FFTWorkspace.get();
+        float[] correlation = autocorrelate(frame, workspace);
+        float[] energy = workspace.buffer(ENERGY, length + 1);
+        if (energy[length] <= 0) return 0;
+        float lag = findLag(correlation, energy, length, minLag, maxLag, workspace);
+        return lag > 0 ? (float) (sampleRate / lag) : 0;
+    }
+
+    /**
+     * @param correlation {@code correlation[lag]} is the sum of {@code x[j] * x[j + lag]} over the frame
+     * @param energy      {@code energy[j]} is the sum of {@code x[i] * x[i]} for {@code i < j}
+     * @return the period in samples, possibly fractional, or 0 if the frame isn't periodic enough
+     */
+    protected abstract float findLag(float[] correlation, float[] energy, int length, int minLag, int maxLag, FFTWorkspace workspace);
+
+    /**
+     * Returns the autocorrelation of the frame with its mean removed and fills the {@link #ENERGY} buffer with the
+     * running energy of the same samples.
+     */
+    private static float[] autocorrelate(Frame frame, FFTWorkspace workspace) {
+        int length = frame.getLength();
+        int size = Integer.highestOneBit(2 * length - 1) << 1;
+        float[] buffer = workspace.buffer(CORRELATION, size);
+        float[] energy = workspace.buffer(ENERGY, length + 1);
+        frame.copySamples(buffer, 0);
+        float mean = 0;
+        for (int i = 0; i < length; i++) mean += buffer[i];
+        mean /= length;
+        energy[0] = 0;
+        for (int i = 0; i < length; i++) {
+            float sample = buffer[i] -= mean;
+            energy[i + 1] = energy[i] + sample * sample;
+        }
+        Arrays.fill(buffer, length, size, 0);
+
+        FloatFFT_1D plan = workspace.plan(size);
+        plan.realForward(buffer);
+        buffer[0] *= buffer[0];
+        buffer[1] *= buffer[1];
+        for (int i = 2; i < size; i += 2) {
+            buffer[i] = buffer[i] * buffer[i] + buffer[i + 1] * buffer[i + 1];
+            buffer[i + 1] = 0;
+        }
+        plan.realInverse(buffer, true);
+        return buffer;
+    }
+
+    /**
+     * Offset of the extremum of the parabola through the three values, in [-0.5, 0.5] for a peak or a valley.
+     */
+    protected static float interpolate(float previous, float value, float next) {
+        float denominator = previous - 2 * value + next;
+        if (denominator == 0) return 0;
+        return Math.max(-0.5f, Math.min(0.5f, 0.5f * (previous - next) / denominator));
+    }
+}
@@ -0,0 +1,52 @@
+package pl.edu.pw.mini.hermant.audio.pitch;
+
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates the fundamental frequency of the voice in a frame.
+ * Implementations keep their scratch arrays per thread, so a single instance can be used from many threads.
+ */
+public interface PitchDetector {
+    float MIN_FREQUENCY = 50;
+    float MAX_FREQUENCY = 400;
+
+    /**
+     * Name of the detector including its parameters, detectors with the same name detect the same pitches.
+     */
+    String getName();
+
+    /**
+     * @return the fundamental frequency in hertz or 0 if the frame doesn't have one in
+     * [{@value MIN_FREQUENCY}, {@value MAX_FREQUENCY}]
+     */
+    float detect(Frame frame);
+
+    /**
+     * Whether the detector works on the magnitude spectrum of the frame windowed with the window, so spectra
+     * transformed in a batch can be passed to {@link #detect(Frame, float[], int)}.
+     */
+    default boolean usesSpectrum(AudioWindow window) {
+        return false;
+    }
+
+    /**
+     * Detects the pitch of a frame given its magnitude spectrum {@code magnitudes[offset, offset + bins)}, windowed with
+     * a window the detector {@link #usesSpectrum(AudioWindow) uses}. Other detectors ignore the spectrum.
+     */
+    default float detect(Frame frame, float[] magnitudes, int offset) {
+        return detect(frame);
+    }
+
+    /**
+     * Detects the pitch of all the frames in parallel, every worker thread reusing its own buffers.
+     */
+    default float[] detect(List<Frame> frames) {
+        float[] pitches = new float[frames.size()];
+        IntStream.range(0, pitches.length).parallel().forEach(i -> pitches[i] = detect(frames.get(i)));
+        return pitches;
+    }
+}
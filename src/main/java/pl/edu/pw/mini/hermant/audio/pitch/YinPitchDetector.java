@@ -0,0 +1,54 @@
+package pl.edu.pw.mini.hermant.audio.pitch;
+
+import pl.edu.pw.mini.hermant.audio.FFTWorkspace;
+
+/**
+ * YIN (de Cheveigne and Kawahara): the first dip of the cumulative mean normalized difference function below the
+ * threshold. The difference function is derived from the autocorrelation and the running energy,
+ * {@code d(lag) = energy of x[0, n - lag) + energy of x[lag, n) - 2 * correlation(lag)}.
+ */
+public class YinPitchDetector extends CorrelationPitchDetector {
+    public static final float DEFAULT_THRESHOLD = 0.15f;
+
+    private final float threshold;
+
+    public YinPitchDetector() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold maximum aperiodicity of a voiced frame, between 0 and 1
+     */
+    public YinPitchDetector(float threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "YIN (threshold = " + threshold + ")";
+    }
+
+    @Override
+    protected float findLag(float[] correlation, float[] energy, int length, int minLag, int maxLag, FFTWorkspace workspace) {
+        float[] difference = workspace.buffer(SCRATCH, maxLag + 2);
+        float total = energy[length];
+        float sum = 0;
+        difference[0] = 1;
+        for (int lag = 1; lag <= maxLag + 1; lag++) {
+            float d = Math.max(0, energy[length - lag] + total - energy[lag] - 2 * correlation[lag]);
+            sum += d;
+            difference[lag] = sum > 0 ? d * lag / sum : 1;
+        }
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            if (difference[lag] < threshold) {
+                while (lag < maxLag && difference[lag + 1] < difference[lag]) lag++;
+                return lag + interpolate(difference[lag - 1], difference[lag], difference[lag + 1]);
+            }
+        }
+        return 0;
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+}
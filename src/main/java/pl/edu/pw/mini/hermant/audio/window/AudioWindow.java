@@ -1,10 +1,57 @@
 package pl.edu.pw.mini.hermant.audio.window;
 
+import pl.edu.pw.mini.hermant.audio.kernel.Kernels;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public abstract class AudioWindow {
+    private final Map<Integer, float[]> coefficients = new ConcurrentHashMap<>();
 
     public abstract String getName();
     public abstract float calculateCoefficient(int index, int sampleSize);
 
+    /**
+     * Returns the coefficients for the given frame size, calculated once per size and window.
+     * The returned table is shared, don't modify it.
+     */
+    public float[] getCoefficients(int sampleSize) {
+        return coefficients.computeIfAbsent(sampleSize, this::calculateCoefficients);
+    }
+
+    protected float[] calculateCoefficients(int sampleSize) {
+        float[] table = new float[sampleSize];
+        for (int i = 0; i < sampleSize; i++) table[i] = calculateCoefficient(i, sampleSize);
+        return table;
+    }
+
+    /**
+     * Multiplies {@code samples[offset, offset + length)} by the window in place.
+     */
+    public void apply(float[] samples, int offset, int length) {
+        apply(samples, offset, samples, offset, length);
+    }
+
+    /**
+     * Writes the windowed {@code source[sourceOffset, sourceOffset + length)} to the destination.
+     */
+    public void apply(float[] source, int sourceOffset, float[] destination, int destinationOffset, int length) {
+        Kernels.get().multiply(source, sourceOffset, getCoefficients(length), destination, destinationOffset, length);
+    }
+
+    /**
+     * Windows are interchangeable when they are of the same type, so they can be used as cache keys.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && getClass() == o.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
     @Override
     public String toString() {
         return getName();
@@ -0,0 +1,15 @@
+package pl.edu.pw.mini.hermant.audio.window;
+
+public class BlackmanAudioWindow extends AudioWindow {
+
+    @Override
+    public String getName() {
+        return "Blackman Audio Window";
+    }
+
+    @Override
+    public float calculateCoefficient(int index, int sampleSize) {
+        double x = 2 * Math.PI * index / (sampleSize - 1);
+        return (float) (0.42 - 0.5 * Math.cos(x) + 0.08 * Math.cos(2 * x));
+    }
+}
@@ -0,0 +1,15 @@
+package pl.edu.pw.mini.hermant.audio.window;
+
+public class BlackmanHarrisAudioWindow extends AudioWindow {
+
+    @Override
+    public String getName() {
+        return "Blackman-Harris Audio Window";
+    }
+
+    @Override
+    public float calculateCoefficient(int index, int sampleSize) {
+        double x = 2 * Math.PI * index / (sampleSize - 1);
+        return (float) (0.35875 - 0.48829 * Math.cos(x) + 0.14128 * Math.cos(2 * x) - 0.01168 * Math.cos(3 * x));
+    }
+}
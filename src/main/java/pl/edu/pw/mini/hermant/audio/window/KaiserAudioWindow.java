@@ -0,0 +1,54 @@
+package pl.edu.pw.mini.hermant.audio.window;
+
+public class KaiserAudioWindow extends AudioWindow {
+    public static final double DEFAULT_BETA = 8.6;
+
+    private final double beta;
+
+    public KaiserAudioWindow() {
+        this(DEFAULT_BETA);
+    }
+
+    public KaiserAudioWindow(double beta) {
+        this.beta = beta;
+    }
+
+    @Override
+    public String getName() {
+        return "Kaiser Audio Window (beta = " + beta + ")";
+    }
+
+    @Override
+    public float calculateCoefficient(int index, int sampleSize) {
+        if (sampleSize == 1) return 1.0f;
+        double x = 2.0 * index / (sampleSize - 1) - 1.0;
+        return (float) (besselI0(beta * Math.sqrt(1.0 - x * x)) / besselI0(beta));
+    }
+
+    /**
+     * Zeroth order modified Bessel function of the first kind, summed until the terms stop mattering.
+     */
+    private static double besselI0(double x) {
+        double sum = 1.0, term = 1.0;
+        double halfX = x / 2.0;
+        for (int k = 1; k < 64 && term > 1e-12 * sum; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+        }
+        return sum;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && Double.compare(((KaiserAudioWindow) o).beta, beta) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Double.hashCode(beta);
+    }
+}
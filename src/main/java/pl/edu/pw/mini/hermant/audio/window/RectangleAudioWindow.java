@@ -11,4 +11,14 @@ public class RectangleAudioWindow extends AudioWindow {
     public float calculateCoefficient(int index, int sampleSize) {
         return 1.0f;
     }
+
+    @Override
+    public void apply(float[] samples, int offset, int length) {
+    }
+
+    @Override
+    public void apply(float[] source, int sourceOffset, float[] destination, int destinationOffset, int length) {
+        if (source != destination || sourceOffset != destinationOffset)
+            System.arraycopy(source, sourceOffset, destination, destinationOffset, length);
+    }
 }
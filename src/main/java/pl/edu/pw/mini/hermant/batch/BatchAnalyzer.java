@@ -0,0 +1,137 @@
+package pl.edu.pw.mini.hermant.batch;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.Clip;
+import pl.edu.pw.mini.hermant.audio.ClipStatistics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Headless analysis of every file in a directory.
+ * Files are analyzed concurrently with the streaming {@link Clip#analyze} so no samples are kept in memory,
+ * and at most {@code maxInFlight} files are queued or being analyzed at once.
+ * One line with the clip-level characteristics is printed per file as soon as it's done.
+ */
+public class BatchAnalyzer {
+    private final int workers;
+    private final int maxInFlight;
+    private final OutputFormat format;
+
+    public BatchAnalyzer(int workers, int maxInFlight, OutputFormat format) {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is required");
+        this.workers = workers;
+        this.maxInFlight = Math.max(maxInFlight, workers);
+        this.format = format;
+    }
+
+    /**
+     * @return the number of files that were analyzed successfully
+     */
+    public int analyze(Path directory, boolean recursive, PrintStream out) throws IOException, InterruptedException {
+        AtomicInteger analyzed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        String header = format.header();
+        if (header != null) out.println(header);
+        try (Stream<Path> files = recursive ? Files.walk(directory) : Files.list(directory)) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        String line = analyzeFile(file, analyzed);
+                        synchronized (out) {
+                            out.println(line);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        out.flush();
+        return analyzed.get();
+    }
+
+    /**
+     * Formats the statistics of the file or the reason it couldn't be analyzed, so every file gets its line even when
+     * analyzing it fails unexpectedly.
+     */
+    private String analyzeFile(Path file, AtomicInteger analyzed) {
+        try {
+            ClipStatistics statistics = analyze(file);
+            if (statistics == null) return format.formatError(file, "decoding failed");
+            analyzed.incrementAndGet();
+            return format.format(file, statistics);
+        } catch (IOException | RuntimeException e) {
+            return format.formatError(file, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return format.formatError(file, "interrupted");
+        }
+    }
+
+    /**
+     * @return the statistics of the file or null if it couldn't be decoded
+     */
+    @Nullable
+    protected ClipStatistics analyze(Path file) throws IOException, InterruptedException {
+        return Clip.analyze(file.toString(), frame -> { });
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = -1;
+        OutputFormat format = OutputFormat.CSV;
+        boolean recursive = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-w":
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "-m":
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(args[++i]);
+                    break;
+                case "-f":
+                case "--format":
+                    format = OutputFormat.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "-r":
+                case "--recursive":
+                    recursive = true;
+                    break;
+                default:
+                    directory = Paths.get(args[i]);
+            }
+        }
+        if (directory == null || !Files.isDirectory(directory)) {
+            System.err.println("usage: <directory> [-w workers] [-m max-in-flight] [-f csv|json] [-r]");
+            System.exit(2);
+        }
+        if (maxInFlight < 0) maxInFlight = 2 * workers;
+        long start = System.nanoTime();
+        int analyzed = new BatchAnalyzer(workers, maxInFlight, format).analyze(directory, recursive, System.out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT, "%d files analyzed in %.2f s (%.2f files/s, %d workers)%n",
+                analyzed, seconds, analyzed / seconds, workers);
+    }
+}
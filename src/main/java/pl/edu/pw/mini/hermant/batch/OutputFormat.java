@@ -0,0 +1,85 @@
+package pl.edu.pw.mini.hermant.batch;
+
+import pl.edu.pw.mini.hermant.audio.ClipStatistics;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Line oriented output of {@link BatchAnalyzer}, one line per analyzed file.
+ */
+public enum OutputFormat {
+    CSV {
+        @Override
+        public String header() {
+            return "file,samples,volume,volume_dynamic_range,short_time_energy,min_volume,max_volume," +
+                    "average_zcr,lster,hzcrr,zcr_std,type,error";
+        }
+
+        @Override
+        public String format(Path file, ClipStatistics statistics) {
+            return String.format(Locale.ROOT, "%s,%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,",
+                    quote(file.toString()), statistics.getSamplesNum(), statistics.getVolume(),
+                    statistics.getVolumeDynamicRange(), statistics.getShortTimeEnergy(), statistics.getMinVolume(),
+                    statistics.getMaxVolume(), statistics.getAverageZeroCrossingRate(),
+                    statistics.getLowShortTimeEnergyRatio(), statistics.getHighZeroCrossingRateRatio(),
+                    statistics.getStandardDeviationOfTheZCR(), statistics.isMusic() ? "music" : "speech");
+        }
+
+        @Override
+        public String formatError(Path file, String error) {
+            return quote(file.toString()) + ",,,,,,,,,,,," + quote(error);
+        }
+
+        private String quote(String value) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    },
+    JSON {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        public String format(Path file, ClipStatistics statistics) {
+            return String.format(Locale.ROOT, "{\"file\":%s,\"samples\":%d,\"volume\":%s,\"volumeDynamicRange\":%s," +
+                            "\"shortTimeEnergy\":%s,\"minVolume\":%s,\"maxVolume\":%s,\"averageZcr\":%s,\"lster\":%s," +
+                            "\"hzcrr\":%s,\"zcrStd\":%s,\"type\":\"%s\"}",
+                    quote(file.toString()), statistics.getSamplesNum(), number(statistics.getVolume()),
+                    number(statistics.getVolumeDynamicRange()), number(statistics.getShortTimeEnergy()),
+                    number(statistics.getMinVolume()), number(statistics.getMaxVolume()),
+                    number(statistics.getAverageZeroCrossingRate()), number(statistics.getLowShortTimeEnergyRatio()),
+                    number(statistics.getHighZeroCrossingRateRatio()), number(statistics.getStandardDeviationOfTheZCR()),
+                    statistics.isMusic() ? "music" : "speech");
+        }
+
+        @Override
+        public String formatError(Path file, String error) {
+            return "{\"file\":" + quote(file.toString()) + ",\"error\":" + quote(error) + "}";
+        }
+
+        private String number(float value) {
+            return Float.isFinite(value) ? Float.toString(value) : "null";
+        }
+
+        private String quote(String value) {
+            StringBuilder builder = new StringBuilder("\"");
+            for (char c : value.toCharArray()) {
+                if (c == '"' || c == '\\') builder.append('\\').append(c);
+                else if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                else builder.append(c);
+            }
+            return builder.append('"').toString();
+        }
+    };
+
+    /**
+     * @return the first line of the output or null if the format has none
+     */
+    public abstract String header();
+
+    public abstract String format(Path file, ClipStatistics statistics);
+
+    public abstract String formatError(Path file, String error);
+}
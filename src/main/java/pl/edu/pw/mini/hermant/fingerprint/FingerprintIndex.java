@@ -0,0 +1,345 @@
+package pl.edu.pw.mini.hermant.fingerprint;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+import pl.edu.pw.mini.hermant.io.AudioReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index from fingerprint hashes to the clips and frames they occur at, read through memory mapping.
+ * <p>
+ * A query looks up every fingerprint of the queried recording and counts, for every clip, the fingerprints whose
+ * frames in the clip and in the query differ by the same offset. Fingerprints matching by chance are spread over
+ * many offsets, while those of a copy or an excerpt of the clip line up, so the score of a clip is its largest count
+ * of a single offset. Counts of neighbouring offsets are added up, since a query cut between the starts of two frames
+ * of the clip has its peaks a frame earlier or later.
+ * <p>
+ * The file is little endian: the magic {@code SAFP}, the format version, the {@link AnalysisConfig} of the
+ * fingerprints, the number of clips, the number of postings and the offset of the clip names. It's followed by
+ * the offset of the first posting of every hash and one past the last hash, the postings, each a clip number in the
+ * upper and a frame in the lower half of a long, grouped by hash, and the clip names.
+ */
+public class FingerprintIndex implements Closeable {
+    public static final int VERSION = 1;
+    public static final int MIN_SCORE = 5;
+    private static final int MAGIC = 'S' | 'A' << 8 | 'F' << 16 | 'P' << 24;
+    private static final int HASHES = 1 << Fingerprinter.HASH_BITS;
+    private static final int HEADER_LENGTH = 48;
+    private static final long POSTINGS_OFFSET = HEADER_LENGTH + (HASHES + 1L) * Long.BYTES;
+    private static final int CHUNK_BITS = 27;
+    private static final long OFFSET_BIAS = 1L << 31;
+
+    private final FileChannel channel;
+    private final Fingerprinter fingerprinter;
+    private final List<String> names;
+    private final LongBuffer hashOffsets;
+    private final LongBuffer[] postings;
+
+    private FingerprintIndex(FileChannel channel, AnalysisConfig config, List<String> names, LongBuffer hashOffsets, LongBuffer[] postings) {
+        this.channel = channel;
+        this.fingerprinter = new Fingerprinter(config);
+        this.names = names;
+        this.hashOffsets = hashOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * Writes the index to a temporary file next to the target, which replaces the target once it's complete.
+     * Postings of a hash are ordered by clip and frame.
+     */
+    static void write(Path file, AnalysisConfig config, List<String> names, List<long[]> fingerprints) throws IOException {
+        long[] hashOffsets = new long[HASHES + 1];
+        for (long[] clipFingerprints : fingerprints)
+            for (long fingerprint : clipFingerprints) hashOffsets[Fingerprinter.hash(fingerprint) + 1]++;
+        for (int hash = 0; hash < HASHES; hash++) hashOffsets[hash + 1] += hashOffsets[hash];
+        long postingsNum = hashOffsets[HASHES];
+        long namesOffset = POSTINGS_OFFSET + postingsNum * Long.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate((int) POSTINGS_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(config.getSampleRate()).putInt(config.getFrameLength()).putInt(config.getHop()).putInt(config.getFftSize());
+        header.putInt(names.size()).putInt(0).putLong(postingsNum).putLong(namesOffset);
+        header.asLongBuffer().put(hashOffsets);
+        header.clear();
+
+        Path directoryPath = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directoryPath, "fingerprints", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) channel.write(header, header.position());
+                LongBuffer[] postings = map(channel, FileChannel.MapMode.READ_WRITE, postingsNum);
+                long[] next = Arrays.copyOf(hashOffsets, HASHES);
+                for (int clip = 0; clip < fingerprints.size(); clip++) {
+                    for (long fingerprint : fingerprints.get(clip)) {
+                        long posting = next[Fingerprinter.hash(fingerprint)]++;
+                        postings[(int) (posting >>> CHUNK_BITS)].put((int) (posting & chunkMask()), (long) clip << 32 | Fingerprinter.frame(fingerprint));
+                    }
+                }
+                ByteBuffer namesBuffer = encodeNames(names);
+                long position = namesOffset;
+                while (namesBuffer.hasRemaining()) position += channel.write(namesBuffer, position);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Opens the index and maps its postings.
+     *
+     * @throws IOException if it isn't a fingerprint index, it's of another version or it's truncated
+     */
+    public static FingerprintIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(channel, 0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC) throw new IOException(file + " isn't a fingerprint index");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported fingerprint index version " + version + " of " + file);
+            AnalysisConfig config = new AnalysisConfig(header.getInt(), header.getInt(), header.getInt(), header.getInt());
+            int clipsNum = header.getInt();
+            header.getInt();
+            long postingsNum = header.getLong();
+            long namesOffset = header.getLong();
+            if (clipsNum < 0 || postingsNum < 0 || namesOffset != POSTINGS_OFFSET + postingsNum * Long.BYTES || namesOffset > channel.size())
+                throw new IOException("Corrupted fingerprint index " + file);
+            LongBuffer hashOffsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, (HASHES + 1L) * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            if (hashOffsets.get(HASHES) != postingsNum) throw new IOException("Corrupted fingerprint index " + file);
+            LongBuffer[] postings = map(channel, FileChannel.MapMode.READ_ONLY, postingsNum);
+            ByteBuffer namesBuffer = read(channel, namesOffset, (int) (channel.size() - namesOffset));
+            List<String> names = new ArrayList<>(clipsNum);
+            for (int clip = 0; clip < clipsNum; clip++) {
+                byte[] bytes = new byte[namesBuffer.getInt()];
+                namesBuffer.get(bytes);
+                names.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return new FingerprintIndex(channel, config, names, hashOffsets, postings);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (e instanceof IOException) throw (IOException) e;
+            throw new IOException("Corrupted fingerprint index " + file, e);
+        }
+    }
+
+    public AnalysisConfig getConfig() {
+        return fingerprinter.getConfig();
+    }
+
+    public int getClipsNum() {
+        return names.size();
+    }
+
+    public String getName(int clip) {
+        return names.get(clip);
+    }
+
+    public long getPostingsNum() {
+        return hashOffsets.get(HASHES);
+    }
+
+    /**
+     * Decodes and queries the file.
+     *
+     * @return the matches or null if decoding failed
+     */
+    @Nullable
+    public List<Match> query(String file, int maxMatches) throws IOException, InterruptedException {
+        SampleBuffer samples = AudioReader.readFile(file, getConfig().getSampleRate());
+        return samples == null ? null : query(samples.array(), samples.size(), maxMatches);
+    }
+
+    /**
+     * Queries the first length samples, at the sample rate of the index.
+     */
+    public List<Match> query(float[] samples, int length, int maxMatches) {
+        return query(fingerprinter.fingerprint(samples, length), maxMatches);
+    }
+
+    /**
+     * Finds the clips with at least {@value MIN_SCORE} fingerprints at the same offset, from the best.
+     * Queries can run concurrently.
+     *
+     * @param fingerprints fingerprints of the query from a {@link Fingerprinter} with the configuration of the index
+     */
+    public List<Match> query(long[] fingerprints, int maxMatches) {
+        long[] keys = new long[Math.max(16, fingerprints.length)];
+        int keysNum = 0;
+        for (long fingerprint : fingerprints) {
+            int hash = Fingerprinter.hash(fingerprint);
+            long queryFrame = Fingerprinter.frame(fingerprint);
+            long from = hashOffsets.get(hash), to = hashOffsets.get(hash + 1);
+            if (keysNum + (to - from) > keys.length) keys = Arrays.copyOf(keys, (int) Math.max(2L * keys.length, keysNum + (to - from)));
+            for (long posting = from; posting < to; posting++) {
+                long clipFrame = posting(posting);
+                // Clip in the upper half, offset of the query in the clip in the lower half
+                keys[keysNum++] = (clipFrame & 0xFFFFFFFF00000000L) | ((int) clipFrame - queryFrame + OFFSET_BIAS);
+            }
+        }
+        Arrays.sort(keys, 0, keysNum);
+
+        List<Match> matches = new ArrayList<>();
+        int bestScore = 0;
+        long bestOffset = 0;
+        long previousKey = -1;
+        int previousCount = 0;
+        for (int run = 0; run < keysNum; ) {
+            long key = keys[run];
+            int end = run + 1;
+            while (end < keysNum && keys[end] == key) end++;
+            int count = end - run;
+            int clip = (int) (key >>> 32);
+            if (previousKey >>> 32 != clip && previousKey >= 0) {
+                if (bestScore >= MIN_SCORE) matches.add(match((int) (previousKey >>> 32), bestScore, bestOffset));
+                bestScore = 0;
+            }
+            int score = previousKey == key - 1 ? count + previousCount : count;
+            if (score > bestScore) {
+                bestScore = score;
+                bestOffset = previousKey == key - 1 && previousCount > count ? key - 1 : key;
+            }
+            previousKey = key;
+            previousCount = count;
+            run = end;
+        }
+        if (bestScore >= MIN_SCORE) matches.add(match((int) (previousKey >>> 32), bestScore, bestOffset));
+        matches.sort(Comparator.comparingInt(Match::getScore).reversed());
+        return matches.size() > maxMatches ? new ArrayList<>(matches.subList(0, maxMatches)) : matches;
+    }
+
+    private Match match(int clip, int score, long key) {
+        long frames = (key & 0xFFFFFFFFL) - OFFSET_BIAS;
+        return new Match(clip, names.get(clip), score, (double) frames * fingerprinter.getHop() / getConfig().getSampleRate());
+    }
+
+    private long posting(long index) {
+        return postings[(int) (index >>> CHUNK_BITS)].get((int) (index & chunkMask()));
+    }
+
+    /**
+     * Closes the file, mapped postings stay readable until they are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static long chunkMask() {
+        return (1L << CHUNK_BITS) - 1;
+    }
+
+    /**
+     * Maps the postings in chunks of 2^{@value CHUNK_BITS}, as a single mapping can't exceed 2 GiB.
+     */
+    private static LongBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long postingsNum) throws IOException {
+        LongBuffer[] chunks = new LongBuffer[(int) ((postingsNum + chunkMask()) >>> CHUNK_BITS)];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            long first = (long) chunk << CHUNK_BITS;
+            long size = Math.min(postingsNum - first, 1L << CHUNK_BITS) * Long.BYTES;
+            chunks[chunk] = channel.map(mode, POSTINGS_OFFSET + first * Long.BYTES, size).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        return chunks;
+    }
+
+    private static ByteBuffer encodeNames(List<String> names) {
+        List<byte[]> encoded = new ArrayList<>(names.size());
+        int length = 0;
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            length += Integer.BYTES + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[] bytes : encoded) buffer.putInt(bytes.length).put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of fingerprint index");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Builds an index of the files of a directory or prints the clips matching a file as CSV, one per line.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String command = args.length > 0 ? args[0] : "";
+        Path index = null;
+        String target = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int maxMatches = 10;
+        boolean recursive = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-w":
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "-n":
+                case "--matches":
+                    maxMatches = Integer.parseInt(args[++i]);
+                    break;
+                case "-r":
+                case "--recursive":
+                    recursive = true;
+                    break;
+                default:
+                    if (index == null) index = Paths.get(args[i]);
+                    else target = args[i];
+            }
+        }
+        if (index == null || target == null || !(command.equals("build") || command.equals("query"))) {
+            System.err.println("usage: --fingerprint build <index> <directory> [-w workers] [-r]");
+            System.err.println("       --fingerprint query <index> <file> [-n matches]");
+            System.exit(2);
+        }
+        if (command.equals("build")) {
+            List<String> files;
+            Path directory = Paths.get(target);
+            try (Stream<Path> paths = recursive ? Files.walk(directory) : Files.list(directory)) {
+                files = paths.filter(Files::isRegularFile).map(Path::toString).sorted().collect(Collectors.toList());
+            }
+            FingerprintIndexBuilder builder = new FingerprintIndexBuilder(AnalysisConfig.getDefault());
+            long start = System.nanoTime();
+            int added = builder.addAll(files, workers);
+            builder.write(index);
+            System.err.printf(Locale.ROOT, "Indexed %d of %d files in %.1f s%n", added, files.size(), (System.nanoTime() - start) / 1e9);
+            return;
+        }
+        List<Match> matches;
+        try (FingerprintIndex fingerprints = open(index)) {
+            matches = fingerprints.query(target, maxMatches);
+        }
+        if (matches == null) {
+            System.err.println("Couldn't decode " + target);
+            System.exit(1);
+        }
+        PrintStream out = System.out;
+        out.println("clip,offset,score");
+        for (Match match : matches) out.printf(Locale.ROOT, "%s,%.3f,%d%n", match.getName(), match.getOffset(), match.getScore());
+        out.flush();
+    }
+}
@@ -0,0 +1,109 @@
+package pl.edu.pw.mini.hermant.fingerprint;
+
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+import pl.edu.pw.mini.hermant.io.AudioReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the fingerprints of clips and writes them as a {@link FingerprintIndex}.
+ * Clips can be added from many threads at once, each is fingerprinted on the thread adding it.
+ * Clips are numbered in the order they are added, or in the order of the list for {@link #addAll(List, int)}.
+ */
+public class FingerprintIndexBuilder {
+    private final Fingerprinter fingerprinter;
+    private final List<String> names = new ArrayList<>();
+    private final List<long[]> fingerprints = new ArrayList<>();
+
+    public FingerprintIndexBuilder(AnalysisConfig config) {
+        fingerprinter = new Fingerprinter(config);
+    }
+
+    /**
+     * @return the number of the clip
+     */
+    public int add(String name, SampleBuffer samples) {
+        return add(name, samples.array(), samples.size());
+    }
+
+    public int add(String name, float[] samples, int length) {
+        int clip = reserve(name);
+        set(clip, fingerprinter.fingerprint(samples, length));
+        return clip;
+    }
+
+    /**
+     * Decodes and adds the file, named by its path.
+     *
+     * @return the number of the clip or -1 if decoding failed
+     */
+    public int add(String file) throws IOException, InterruptedException {
+        SampleBuffer samples = AudioReader.readFile(file, fingerprinter.getConfig().getSampleRate());
+        return samples == null ? -1 : add(file, samples);
+    }
+
+    /**
+     * Decodes and fingerprints the files on the given number of threads. A file that can't be decoded keeps its
+     * number but has no fingerprints, so it never matches.
+     *
+     * @return the number of files that were added
+     */
+    public int addAll(List<String> files, int workers) throws InterruptedException {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is required");
+        AtomicInteger added = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (String file : files) {
+                int clip = reserve(file);
+                executor.execute(() -> {
+                    try {
+                        SampleBuffer samples = AudioReader.readFile(file, fingerprinter.getConfig().getSampleRate());
+                        if (samples == null) {
+                            System.err.println("Couldn't decode " + file);
+                            return;
+                        }
+                        set(clip, fingerprinter.fingerprint(samples));
+                        added.incrementAndGet();
+                    } catch (IOException e) {
+                        System.err.println("Couldn't decode " + file + ": " + e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return added.get();
+    }
+
+    private synchronized int reserve(String name) {
+        names.add(name);
+        fingerprints.add(new long[0]);
+        return names.size() - 1;
+    }
+
+    private synchronized void set(int clip, long[] clipFingerprints) {
+        fingerprints.set(clip, clipFingerprints);
+    }
+
+    public synchronized int getClipsNum() {
+        return names.size();
+    }
+
+    /**
+     * Writes the index of the clips added so far, replacing the file once it's complete.
+     */
+    public synchronized void write(Path file) throws IOException {
+        FingerprintIndex.write(file, fingerprinter.getConfig(), names, fingerprints);
+    }
+}
@@ -0,0 +1,187 @@
+package pl.edu.pw.mini.hermant.fingerprint;
+
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.FFTWorkspace;
+import pl.edu.pw.mini.hermant.audio.FrameSequence;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+import pl.edu.pw.mini.hermant.audio.window.VanHannAudioWindow;
+
+import java.util.Arrays;
+
+/**
+ * Hashes pairs of spectral peaks of a recording into fingerprints that survive cutting it at any point.
+ * <p>
+ * Frames overlap by half and are Van Hann windowed. A bin of a frame is a peak when it's louder than
+ * {@value MIN_AMPLITUDE} and than every bin within {@value PEAK_BINS} bins and {@value PEAK_FRAMES} frames of it,
+ * and at most {@value PEAKS_PER_FRAME} of the loudest peaks of a frame are kept. Every peak is paired with up to
+ * {@value FAN_OUT} peaks of the next {@value MAX_FRAME_DISTANCE} frames that are at most {@value MAX_BIN_DISTANCE}
+ * bins away. A fingerprint is the hash of the bin of the first peak and the distances to the second one, together with
+ * the frame of the first peak, so the hashes don't depend on where the recording starts and the frames of matching
+ * hashes differ by the same offset.
+ */
+public class Fingerprinter {
+    public static final int HASH_BITS = 20;
+    private static final float OVERLAP = 0.5f;
+    private static final int MAX_BINS = 1 << 9;
+    private static final double MAX_FREQUENCY = 11025;
+    private static final float MIN_AMPLITUDE = 1e-3f;
+    private static final int PEAK_BINS = 5;
+    private static final int PEAK_FRAMES = 5;
+    private static final int PEAKS_PER_FRAME = 3;
+    private static final int FAN_OUT = 10;
+    private static final int MAX_FRAME_DISTANCE = 31;
+    private static final int MAX_BIN_DISTANCE = 31;
+    private static final AudioWindow WINDOW = new VanHannAudioWindow();
+
+    private final AnalysisConfig config;
+    private final int hop;
+    private final int bins;
+    private final float minMagnitude;
+
+    public Fingerprinter(AnalysisConfig config) {
+        this.config = config;
+        hop = FrameSequence.getHop(OVERLAP, config);
+        bins = (int) Math.min(Math.min(config.getBins(), MAX_BINS), Math.ceil(MAX_FREQUENCY / config.getBinWidth()));
+        // A sine of the given amplitude peaks at a quarter of the frame length times it in a Van Hann windowed frame
+        minMagnitude = MIN_AMPLITUDE * config.getFrameLength() / 4;
+    }
+
+    public AnalysisConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Samples between the starts of consecutive frames, the unit of fingerprint frames.
+     */
+    public int getHop() {
+        return hop;
+    }
+
+    public long[] fingerprint(SampleBuffer samples) {
+        return fingerprint(samples.array(), samples.size());
+    }
+
+    /**
+     * Fingerprints of the first length samples, each a {@link #hash(long)} in the upper and a {@link #frame(long)} in
+     * the lower half, ordered by frame.
+     */
+    public long[] fingerprint(float[] samples, int length) {
+        int framesNum = FrameSequence.getFramesNum(length, OVERLAP, config);
+        Peaks peaks = new Peaks();
+        int rows = 2 * PEAK_FRAMES + 1;
+        float[][] magnitudes = new float[rows][bins];
+        float[][] neighbourhoods = new float[rows][bins];
+        for (int frame = 0; frame < framesNum + PEAK_FRAMES; frame++) {
+            if (frame < framesNum) {
+                spectrum(samples, frame * hop, magnitudes[frame % rows]);
+                neighbourhoodMax(magnitudes[frame % rows], neighbourhoods[frame % rows]);
+            }
+            int center = frame - PEAK_FRAMES;
+            if (center >= 0) findPeaks(center, magnitudes, neighbourhoods, Math.max(0, center - PEAK_FRAMES),
+                    Math.min(framesNum - 1, center + PEAK_FRAMES), peaks);
+        }
+        return pair(peaks);
+    }
+
+    /**
+     * Hash of the bin of the first peak of a pair and the distances to the second one, {@value HASH_BITS} bits.
+     */
+    public static int hash(long fingerprint) {
+        return (int) (fingerprint >>> 32);
+    }
+
+    /**
+     * Frame of the first peak of a pair.
+     */
+    public static int frame(long fingerprint) {
+        return (int) fingerprint;
+    }
+
+    private void spectrum(float[] samples, int start, float[] magnitudes) {
+        FFTWorkspace workspace = FFTWorkspace.get();
+        int fftSize = config.getFftSize();
+        int frameLength = config.getFrameLength();
+        float[] frame = workspace.buffer(fftSize);
+        WINDOW.apply(samples, start, frame, 0, frameLength);
+        Arrays.fill(frame, frameLength, fftSize, 0.0f);
+        workspace.plan(fftSize).realForward(frame);
+        magnitudes[0] = 0; // DC is never a peak
+        for (int bin = 1; bin < bins; bin++) {
+            float re = frame[2 * bin];
+            float im = frame[2 * bin + 1];
+            magnitudes[bin] = (float) Math.sqrt(re * re + im * im);
+        }
+    }
+
+    /**
+     * Loudest magnitude within {@value PEAK_BINS} bins of every bin.
+     */
+    private void neighbourhoodMax(float[] magnitudes, float[] neighbourhood) {
+        for (int bin = 0; bin < bins; bin++) {
+            float max = 0;
+            int to = Math.min(bins - 1, bin + PEAK_BINS);
+            for (int other = Math.max(0, bin - PEAK_BINS); other <= to; other++) max = Math.max(max, magnitudes[other]);
+            neighbourhood[bin] = max;
+        }
+    }
+
+    /**
+     * Adds the loudest peaks of the frame, which are local maxima of the frames from first to last.
+     */
+    private void findPeaks(int frame, float[][] magnitudes, float[][] neighbourhoods, int first, int last, Peaks peaks) {
+        int rows = magnitudes.length;
+        float[] row = magnitudes[frame % rows];
+        int[] kept = new int[PEAKS_PER_FRAME];
+        int keptNum = 0;
+        for (int bin = 1; bin < bins; bin++) {
+            float magnitude = row[bin];
+            if (magnitude < minMagnitude || magnitude < neighbourhoods[frame % rows][bin]) continue;
+            boolean peak = true;
+            for (int other = first; other <= last && peak; other++) peak = magnitude >= neighbourhoods[other % rows][bin];
+            if (!peak) continue;
+            int position;
+            if (keptNum < PEAKS_PER_FRAME) position = keptNum++;
+            else if (row[kept[PEAKS_PER_FRAME - 1]] < magnitude) position = PEAKS_PER_FRAME - 1;
+            else continue;
+            for (; position > 0 && row[kept[position - 1]] < magnitude; position--) kept[position] = kept[position - 1];
+            kept[position] = bin;
+        }
+        for (int i = 0; i < keptNum; i++) peaks.add(frame, kept[i]);
+    }
+
+    private static long[] pair(Peaks peaks) {
+        long[] fingerprints = new long[peaks.size * FAN_OUT];
+        int fingerprintsNum = 0;
+        for (int anchor = 0; anchor < peaks.size; anchor++) {
+            int frame = peaks.frames[anchor];
+            int bin = peaks.bins[anchor];
+            int paired = 0;
+            for (int target = anchor + 1; target < peaks.size && paired < FAN_OUT; target++) {
+                int frameDistance = peaks.frames[target] - frame;
+                if (frameDistance > MAX_FRAME_DISTANCE) break;
+                int binDistance = peaks.bins[target] - bin;
+                if (frameDistance == 0 || Math.abs(binDistance) > MAX_BIN_DISTANCE) continue;
+                int hash = bin << 11 | (binDistance + MAX_BIN_DISTANCE + 1) << 5 | frameDistance;
+                fingerprints[fingerprintsNum++] = (long) hash << 32 | frame;
+                paired++;
+            }
+        }
+        return Arrays.copyOf(fingerprints, fingerprintsNum);
+    }
+
+    private static class Peaks {
+        int[] frames = new int[256];
+        int[] bins = new int[256];
+        int size;
+
+        void add(int frame, int bin) {
+            if (size == frames.length) {
+                frames = Arrays.copyOf(frames, 2 * size);
+                bins = Arrays.copyOf(bins, 2 * size);
+            }
+            frames[size] = frame;
+            bins[size++] = bin;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package pl.edu.pw.mini.hermant.fingerprint;
+
+import java.util.Locale;
+
+/**
+ * Clip of an index containing a queried recording.
+ */
+public class Match {
+    private final int clip;
+    private final String name;
+    private final int score;
+    private final double offset;
+
+    public Match(int clip, String name, int score, double offset) {
+        this.clip = clip;
+        this.name = name;
+        this.score = score;
+        this.offset = offset;
+    }
+
+    public int getClip() {
+        return clip;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of fingerprints of the query found in the clip at the same offset.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Time in seconds of the clip where the query starts, negative if the query starts before the clip.
+     */
+    public double getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s at %.3f s (%d)", name, offset, score);
+    }
+}
@@ -0,0 +1,188 @@
+package pl.edu.pw.mini.hermant.gui;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.*;
+import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+
+/**
+ * Analysis results of a clip as a small dataflow graph.
+ * Every node is keyed by the part of the settings it depends on and keeps the value computed for the last key, so
+ * asking for a node recomputes it only if its own inputs changed, e.g. a new window function doesn't recompute
+ * the frames or the temporal features. Nodes are computed lazily on the calling thread, which is checked for
+ * an interrupt between the steps of longer computations.
+ * <p>
+ * When the {@link FeatureFile#DIRECTORY_PROPERTY} directory is set, the features of a range are read from the
+ * feature file of the whole clip, which is extracted with all the features the first time the clip is opened with
+ * the overlap and window, so later ranges and later opens of the file don't extract them again.
+ */
+class AnalysisGraph {
+    private static final Set<Feature> TEMPORAL_FEATURES = EnumSet.of(Feature.VOLUME, Feature.SHORT_TIME_ENERGY, Feature.ZERO_CROSSING_RATE);
+    private static final Set<Feature> SPECTRAL_FEATURES = EnumSet.of(Feature.FREQUENCY_VOLUME, Feature.FREQUENCY_CENTROID,
+            Feature.EFFECTIVE_BANDWIDTH, Feature.ERSB1, Feature.ERSB2, Feature.ERSB3);
+
+    final Node<List<Frame>> frames;
+    final Node<FeatureTable> temporalFeatures;
+    final Node<FeatureTable> spectralFeatures;
+    final Node<FeatureTable> baseTone;
+    final Node<PowerSpectrum> averagedSpectrum;
+    final Node<SpectrogramDataset> spectrogram;
+    private final Clip clip;
+    private final String file;
+    private final Path featuresDirectory;
+
+    /**
+     * @param file the clip was decoded from, null if the features shouldn't be stored
+     */
+    AnalysisGraph(Clip clip, @Nullable String file) {
+        this.clip = clip;
+        this.file = file;
+        featuresDirectory = file == null ? null : FeatureFile.directoryFromSystemProperties();
+        frames = new Node<>("Framing", Settings::getRangeKey, (settings, progress, done) ->
+                new ArrayList<>(clip.getOverlappingFrames(settings.overlap).subList(settings.from, settings.to)));
+        temporalFeatures = new Node<>("Extracting features", Settings::getRangeKey, (settings, progress, done) ->
+                extract(settings, TEMPORAL_FEATURES, progress, done));
+        spectralFeatures = new Node<>("Extracting spectral features", Settings::getSpectralKey, (settings, progress, done) ->
+                extract(settings, SPECTRAL_FEATURES, progress, done));
+        baseTone = new Node<>("Finding base tone", Settings::getSpectralKey, (settings, progress, done) ->
+                extract(settings, EnumSet.of(Feature.BASE_TONE), progress, done));
+        averagedSpectrum = new Node<>("Averaging spectra", Settings::getSpectralKey, this::averageSpectrum);
+        spectrogram = new Node<>("Computing spectrogram", Settings::getSpectralKey, this::computeSpectrogram);
+    }
+
+    Clip getClip() {
+        return clip;
+    }
+
+    private FeatureTable extract(Settings settings, Set<Feature> features, Progress progress, DoubleConsumer done) {
+        if (featuresDirectory != null) {
+            FeatureTable stored = readStored(settings, done);
+            if (stored != null) return stored;
+        }
+        List<Frame> frames = this.frames.get(settings, progress);
+        return new FeatureExtractor(settings.window, features).extract(frames, extracted -> done.accept((double) extracted / frames.size()));
+    }
+
+    /**
+     * @return all the features of the range or null if the feature file can't be written or read
+     */
+    @Nullable
+    private FeatureTable readStored(Settings settings, DoubleConsumer done) {
+        FrameSequence frames = clip.getOverlappingFrames(settings.overlap);
+        FeatureExtractor extractor = new FeatureExtractor(settings.window);
+        Path path = FeatureFile.path(featuresDirectory, file, frames.getHop(), extractor);
+        try (FeatureFile features = FeatureFile.openOrCreate(path, file, frames, extractor,
+                extracted -> done.accept((double) extracted / frames.size()))) {
+            return features.readTable(settings.from, settings.to);
+        } catch (IOException e) {
+            System.err.println("Couldn't store the features of " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private PowerSpectrum averageSpectrum(Settings settings, Progress progress, DoubleConsumer done) {
+        List<Frame> frames = this.frames.get(settings, progress);
+        return PowerSpectrum.average(frames, settings.window, settings.config, averaged -> done.accept((double) averaged / frames.size()));
+    }
+
+    private SpectrogramDataset computeSpectrogram(Settings settings, Progress progress, DoubleConsumer done) {
+        List<Frame> frames = this.frames.get(settings, progress);
+        ShortTimeFourierTransform transform = new ShortTimeFourierTransform(settings.window, settings.config);
+        float[] amplitudes = transform.transform(frames, 0, frames.size(), transformed -> done.accept((double) transformed / frames.size()));
+        float frameLength = settings.config.getFrameLength();
+        // Scaled in place the same way as Spectrum.getAmplitude
+        for (int i = 0; i < amplitudes.length; i++) amplitudes[i] = amplitudes[i] * 100f / frameLength;
+        return new SpectrogramDataset(amplitudes, transform.getBins(), settings.getFrameStep(), settings.config.getBinWidth());
+    }
+
+    /**
+     * Receives the name of the node being computed and the fraction of it that's done.
+     */
+    interface Progress {
+        void report(String task, double done);
+    }
+
+    interface Computation<T> {
+        /**
+         * @param progress passed on to the nodes this one depends on
+         * @param done     receives the fraction of this computation that's done
+         */
+        T compute(Settings settings, Progress progress, DoubleConsumer done);
+    }
+
+    /**
+     * Lazily computed result, recomputed only when the key of the settings it's asked for changes.
+     */
+    static class Node<T> {
+        private final String name;
+        private final Function<Settings, Object> key;
+        private final Computation<T> computation;
+        private Object computedKey;
+        private T value;
+
+        Node(String name, Function<Settings, Object> key, Computation<T> computation) {
+            this.name = name;
+            this.key = key;
+            this.computation = computation;
+        }
+
+        Object getKey(Settings settings) {
+            return key.apply(settings);
+        }
+
+        synchronized T get(Settings settings, Progress progress) {
+            Object key = getKey(settings);
+            if (!key.equals(computedKey)) {
+                progress.report(name, 0);
+                value = computation.compute(settings, progress, done -> progress.report(name, done));
+                computedKey = key;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Settings of the charts, taken from the form when drawing is requested.
+     */
+    static class Settings {
+        final float overlap;
+        final AudioWindow window;
+        final int from;
+        final int to;
+        final AnalysisConfig config;
+
+        /**
+         * @param config configuration of the analyzed clip
+         */
+        Settings(float overlap, AudioWindow window, int from, int to, AnalysisConfig config) {
+            this.config = config;
+            this.overlap = overlap;
+            this.window = window;
+            this.from = from;
+            this.to = to;
+        }
+
+        double getFrameStep() {
+            return FrameSequence.getHop(overlap, config) * config.getSampleTime();
+        }
+
+        /**
+         * Key of the results depending only on the frames.
+         */
+        Object getRangeKey() {
+            return Arrays.asList(overlap, from, to);
+        }
+
+        /**
+         * Key of the results depending on the spectra of the frames.
+         */
+        Object getSpectralKey() {
+            return Arrays.asList(overlap, from, to, window);
+        }
+    }
+}
@@ -5,13 +5,18 @@ import com.intellij.uiDesigner.core.GridLayoutManager;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.IntervalMarker;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.ui.Layer;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
 import pl.edu.pw.mini.hermant.audio.Clip;
+import pl.edu.pw.mini.hermant.audio.Feature;
+import pl.edu.pw.mini.hermant.audio.FeatureTable;
 import pl.edu.pw.mini.hermant.audio.FourierPoint;
 import pl.edu.pw.mini.hermant.audio.Frame;
-import pl.edu.pw.mini.hermant.audio.window.AudioWindow;
-import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
-import pl.edu.pw.mini.hermant.audio.window.RectangleAudioWindow;
-import pl.edu.pw.mini.hermant.audio.window.VanHannAudioWindow;
+import pl.edu.pw.mini.hermant.audio.PowerSpectrum;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+import pl.edu.pw.mini.hermant.audio.window.*;
+import pl.edu.pw.mini.hermant.io.AudioReader;
 
 import javax.swing.*;
 import java.awt.*;
@@ -20,8 +25,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 
 public class AnalyzerForm implements Form {
@@ -52,6 +60,9 @@ public class AnalyzerForm implements Form {
     private JScrollPane ersb1ChartPanel;
     private JScrollPane ersb2ChartPanel;
     private JScrollPane ersb3ChartPanel;
+    private JProgressBar progressBar;
+    private JButton cancelButton;
+    private final AnalysisConfig config = AnalysisConfig.getDefault();
     private Clip clip;
     private float overlap = 0.0f;
     private int from = 0;
@@ -62,6 +73,11 @@ public class AnalyzerForm implements Form {
     private MenuBar menuBar;
     private JFileChooser inputChooser;
     private HashMap<String, JFreeChart> charts = new HashMap<>();
+    private Job<?> job;
+    private AnalysisGraph graph;
+    private AnalysisGraph.Settings settings;
+    private final Map<JScrollPane, ChartView> views = new HashMap<>();
+    private final Map<JScrollPane, Object> drawnKeys = new HashMap<>();
     private final HashMap<String, Consumer<String>> characteristics = new HashMap<>();
 
     public AnalyzerForm() {
@@ -72,10 +88,15 @@ public class AnalyzerForm implements Form {
         overlapSlider.addChangeListener(e -> {
             overlapLabel.setText(String.valueOf(overlap = (float) overlapSlider.getValue() / 100.0f));
             frameRangeLabel.setText(String.format("frame range(<from> <to>, max: %d):", clip == null ? 999999 : (max = clip.getFramesNum(overlap))));
+            if (!overlapSlider.getValueIsAdjusting()) redraw();
         });
-        redrawButton.addActionListener(e -> {
-            if (clip == null) return;
-            drawCharts();
+        redrawButton.addActionListener(e -> redraw());
+        mainTabbedPanel.addChangeListener(e -> refresh());
+        timeVolumeTabbedPanel.addChangeListener(e -> refresh());
+        tabbedPane1.addChangeListener(e -> refresh());
+        setupViews();
+        cancelButton.addActionListener(e -> {
+            if (job != null) job.cancel(true);
         });
         windowFunctionCombo.addActionListener(e -> {
             String selected = (String) Objects.requireNonNull(windowFunctionCombo.getSelectedItem());
@@ -89,6 +110,15 @@ public class AnalyzerForm implements Form {
                 case "Hamming":
                     window = new HammingAudioWindow();
                     break;
+                case "Blackman":
+                    window = new BlackmanAudioWindow();
+                    break;
+                case "Blackman-Harris":
+                    window = new BlackmanHarrisAudioWindow();
+                    break;
+                case "Kaiser":
+                    window = new KaiserAudioWindow();
+                    break;
             }
         });
     }
@@ -110,37 +140,111 @@ public class AnalyzerForm implements Form {
         if (to < from) to = from;
     }
 
-    private void drawCharts() {
-        drawTimeSeriesChart(amplitudeChartPanel, "Amplitude", clip.getSamples().stream(), Clip.SAMPLE_TIME);
+    /**
+     * Applies the current settings and redraws the visible charts that depend on the changed ones.
+     */
+    private void redraw() {
+        if (clip == null) return;
         updateFrameRange();
-        List<Frame> frames = clip.getOverlappingFrames(overlap).subList(from, to);
-        Map<Float, Float> frequencies = new HashMap<>();
-        for (Frame frame : frames) {
-            Map<Float, Float> f = frame.calculateFrequencies(window).stream().collect(Collectors.toMap(FourierPoint::getFrequency, FourierPoint::getAmplitude));
-            for (Map.Entry<Float, Float> entry : f.entrySet()) {
-                if (!frequencies.containsKey(entry.getKey())) frequencies.put(entry.getKey(), entry.getValue());
-                else frequencies.put(entry.getKey(), frequencies.get(entry.getKey()) + entry.getValue());
-            }
+        settings = new AnalysisGraph.Settings(overlap, window, from, to, clip.getConfig());
+        refresh();
+    }
+
+    /**
+     * Draws the visible charts which are out of date in the background, superseding the job that's drawing now
+     * unless it's already drawing them. Hidden charts are drawn when their tab is shown.
+     * While a file is loading nothing is started, the clip is drawn with the settings current when it's loaded.
+     */
+    private void refresh() {
+        if (graph == null || job instanceof LoadJob && !job.isDone()) return;
+        if (settings.from >= settings.to) {
+            progressBar.setString("Empty frame range");
+            return;
+        }
+        List<JScrollPane> stale = new ArrayList<>();
+        for (JScrollPane panel : Arrays.asList(amplitudeChartPanel, getVisibleChartPanel())) {
+            ChartView view = views.get(panel);
+            if (view != null && !view.getKey(settings).equals(drawnKeys.get(panel))) stale.add(panel);
         }
-        frames.parallelStream().forEach(Frame::calculateVolume);
-        frames.parallelStream().forEach(Frame::calculateZeroCrossingRate);
-        List<Float> selectedSamples = clip.getSamples().subList(frames.get(0).getFrameStart(), frames.get(frames.size() - 1).getFrameStart() + Frame.SAMPLES_PER_FRAME);
-        drawTimeSeriesChart(selectedAmplitudeChartPanel, "Range Amplitude", selectedSamples.stream(), Clip.SAMPLE_TIME);
-        drawXYSeriesChart(fourierChartPanel, "Frequencies", frequencies.entrySet().stream().map(entry -> new FourierPoint(entry.getKey(), entry.getValue() / frames.size())));
-        drawHeatMapChart(spectrumChartPanel, "Spectrum", frames, Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(baseToneChartPanel, "Base Tone", frames.stream().map(f -> f.calculateBasicTone(window)), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(timeVolumeChartPanel, "Volume", frames.stream().map(Frame::getVolume), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(frequencyVolumeChartPanel, "Frequency Volume", frames.stream().map(f -> f.calculateFrequencyVolume(window, 0, 11025)), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(frequencyCentroidChartPanel, "Frequency Centroid", frames.stream().map(f -> f.calculateFrequencyCentroid(window)), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(effectiveBandwithChartPanel, "Effective Bandwidth", frames.stream().map(f -> f.calculateEffectiveBandwidth(window)), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(shortTimeEnergyChartPanel, "Short Time Energy", frames.stream().map(Frame::getShortTimeEnergy), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(zeroCrossingRateChartPanel, "Zero Crossing Rate", frames.stream().map(Frame::getZeroCrossingRate), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(ersb1ChartPanel, "ERSB1(0 - 630Hz)", frames.stream().map(f -> f.calculateFrequencyVolume(window, 0, 630) / f.calculateFrequencyVolume(window, 0, 11025)), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(ersb2ChartPanel, "ERSB2(630 - 1720Hz)", frames.stream().map(f -> f.calculateFrequencyVolume(window, 630, 1720) / f.calculateFrequencyVolume(window, 0, 11025)), Clip.FRAME_TIME * (1.0f - overlap));
-        drawTimeSeriesChart(ersb3ChartPanel, "ERSB3(1720 - 4400Hz)", frames.stream().map(f -> f.calculateFrequencyVolume(window, 1720, 4400) / f.calculateFrequencyVolume(window, 0, 11025)), Clip.FRAME_TIME * (1.0f - overlap));
-        markCharts(new String[]{"Amplitude", "Volume", "Short Time Energy", "Zero Crossing Rate", "Frequency Volume"}, frames.stream().map(Frame::isSilence), Clip.FRAME_TIME * (1.0f - overlap), Color.BLUE);
-        markCharts(new String[]{"Amplitude", "Volume", "Short Time Energy", "Zero Crossing Rate", "Frequency Volume"}, frames.stream().map(Frame::isVoiced), Clip.FRAME_TIME * (1.0f - overlap), Color.RED);
-        markCharts(new String[]{"Amplitude", "Volume", "Short Time Energy", "Zero Crossing Rate", "Frequency Volume"}, frames.stream().map(Frame::isVoiceless), Clip.FRAME_TIME * (1.0f - overlap), Color.GREEN);
+        if (stale.isEmpty() || job instanceof DrawJob && !job.isDone() && ((DrawJob) job).isDrawing(stale)) return;
+        start(new DrawJob(stale));
+    }
+
+    private JScrollPane getVisibleChartPanel() {
+        Component selected = mainTabbedPanel.getSelectedComponent();
+        while (selected instanceof JScrollPane && ((JScrollPane) selected).getViewport().getView() instanceof JTabbedPane)
+            selected = ((JTabbedPane) ((JScrollPane) selected).getViewport().getView()).getSelectedComponent();
+        return (JScrollPane) selected;
+    }
+
+    private void setupViews() {
+        views.put(amplitudeChartPanel, view(AnalysisGraph.Settings::getRangeKey, (graph, settings, progress) -> {
+            FeatureTable features = graph.temporalFeatures.get(settings, progress);
+            return () -> markChart("Amplitude", features, settings.getFrameStep());
+        }));
+        views.put(selectedAmplitudeChartPanel, view(AnalysisGraph.Settings::getRangeKey, (graph, settings, progress) -> {
+            List<Frame> frames = graph.frames.get(settings, progress);
+            SampleBuffer samples = graph.getClip().getSamples();
+            int start = frames.get(0).getFrameStart();
+            int end = Math.min(frames.get(frames.size() - 1).getFrameStart() + settings.config.getFrameLength(), samples.size());
+            return () -> drawTimeSeriesChart(selectedAmplitudeChartPanel, "Range Amplitude", samples.array(), start, end - start, settings.config.getSampleTime());
+        }));
+        views.put(fourierChartPanel, view(AnalysisGraph.Settings::getSpectralKey, (graph, settings, progress) -> {
+            PowerSpectrum spectrum = graph.averagedSpectrum.get(settings, progress);
+            return () -> drawXYSeriesChart(fourierChartPanel, "Frequencies", spectrum.toFourierPoints().stream());
+        }));
+        views.put(spectrumChartPanel, view(AnalysisGraph.Settings::getSpectralKey, (graph, settings, progress) -> {
+            SpectrogramDataset spectrogram = graph.spectrogram.get(settings, progress);
+            return () -> drawSpectrogramChart(spectrumChartPanel, "Spectrum", spectrogram);
+        }));
+        views.put(baseToneChartPanel, featureView(graph -> graph.baseTone, Feature.BASE_TONE, baseToneChartPanel, "Base Tone", false));
+        views.put(timeVolumeChartPanel, featureView(graph -> graph.temporalFeatures, Feature.VOLUME, timeVolumeChartPanel, "Volume", true));
+        views.put(frequencyVolumeChartPanel, featureView(graph -> graph.spectralFeatures, Feature.FREQUENCY_VOLUME, frequencyVolumeChartPanel, "Frequency Volume", true));
+        views.put(frequencyCentroidChartPanel, featureView(graph -> graph.spectralFeatures, Feature.FREQUENCY_CENTROID, frequencyCentroidChartPanel, "Frequency Centroid", false));
+        views.put(effectiveBandwithChartPanel, featureView(graph -> graph.spectralFeatures, Feature.EFFECTIVE_BANDWIDTH, effectiveBandwithChartPanel, "Effective Bandwidth", false));
+        views.put(shortTimeEnergyChartPanel, featureView(graph -> graph.temporalFeatures, Feature.SHORT_TIME_ENERGY, shortTimeEnergyChartPanel, "Short Time Energy", true));
+        views.put(zeroCrossingRateChartPanel, featureView(graph -> graph.temporalFeatures, Feature.ZERO_CROSSING_RATE, zeroCrossingRateChartPanel, "Zero Crossing Rate", true));
+        views.put(ersb1ChartPanel, featureView(graph -> graph.spectralFeatures, Feature.ERSB1, ersb1ChartPanel, "ERSB1(0 - 630Hz)", false));
+        views.put(ersb2ChartPanel, featureView(graph -> graph.spectralFeatures, Feature.ERSB2, ersb2ChartPanel, "ERSB2(630 - 1720Hz)", false));
+        views.put(ersb3ChartPanel, featureView(graph -> graph.spectralFeatures, Feature.ERSB3, ersb3ChartPanel, "ERSB3(1720 - 4400Hz)", false));
+    }
+
+    /**
+     * Chart of a single feature column, optionally with silence and voiced/voiceless frames marked.
+     */
+    private ChartView featureView(Function<AnalysisGraph, AnalysisGraph.Node<FeatureTable>> node, Feature feature,
+                                  JScrollPane container, String chartName, boolean marked) {
+        Function<AnalysisGraph.Settings, Object> key = feature.isSpectral() ? AnalysisGraph.Settings::getSpectralKey : AnalysisGraph.Settings::getRangeKey;
+        return view(key, (graph, settings, progress) -> {
+            float[] column = node.apply(graph).get(settings, progress).getColumn(feature);
+            FeatureTable markers = marked ? graph.temporalFeatures.get(settings, progress) : null;
+            return () -> {
+                drawTimeSeriesChart(container, chartName, column, settings.getFrameStep());
+                if (markers != null) markChart(chartName, markers, settings.getFrameStep());
+            };
+        });
+    }
+
+    private static ChartView view(Function<AnalysisGraph.Settings, Object> key, ChartComputation computation) {
+        return new ChartView() {
+            @Override
+            public Object getKey(AnalysisGraph.Settings settings) {
+                return key.apply(settings);
+            }
+
+            @Override
+            public Runnable compute(AnalysisGraph graph, AnalysisGraph.Settings settings, AnalysisGraph.Progress progress) {
+                return computation.compute(graph, settings, progress);
+            }
+        };
+    }
+
+    private void start(Job<?> next) {
+        Job<?> previous = job;
+        job = next;
+        if (previous != null) previous.cancel(true);
+        cancelButton.setEnabled(true);
+        next.execute();
     }
 
     public JPanel getMainPanel() {
@@ -159,49 +263,37 @@ public class AnalyzerForm implements Form {
 
     private void open(ActionEvent e) {
         int returnVal = inputChooser.showOpenDialog(null);
-        if (returnVal == JFileChooser.APPROVE_OPTION) {
-            File file = inputChooser.getSelectedFile();
-            try {
-                clip = new Clip(file.getAbsolutePath());
-            } catch (IOException | InterruptedException ex) {
-                ex.printStackTrace();
-            }
-            frameRangeLabel.setText(String.format("frame range(<from> <to>, max: %d):", clip.getFramesNum()));
-            drawCharts();
-            setCharacteristic("Total volume", Float.toString(clip.getVolume()));
-            setCharacteristic("Volume Dynamic Range", Float.toString(clip.getVolumeDynamicRange()));
-            setCharacteristic("Average Short Time Energy", Float.toString(clip.getShortTimeEnergy()));
-            setCharacteristic("Minimum volume", Float.toString(clip.getMinVolume()));
-            setCharacteristic("Maximum volume", Float.toString(clip.getMaxVolume()));
-            setCharacteristic("Average Zero Crossing Rate", Float.toString(clip.getAverageZeroCrossingRate()));
-            setCharacteristic("Low Short Time Energy Ratio", Float.toString(clip.getLowShortTimeEnergyRatio()));
-            setCharacteristic("High Zero Crossing Rate Ratio", Float.toString(clip.getHighZeroCrossingRateRatio()));
-            setCharacteristic("Standard Deviation of the ZCR", Float.toString(clip.getStandardDeviationOfTheZCR()));
-            setCharacteristic("Music or Speech", clip.isMusic() ? "Music" : "Speech");
-            ((JFrame) SwingUtilities.getWindowAncestor(mainPanel)).setTitle(file.getName());
-            SwingUtilities.getWindowAncestor(mainPanel).pack();
-        }
+        if (returnVal == JFileChooser.APPROVE_OPTION) start(new LoadJob(inputChooser.getSelectedFile()));
     }
 
-    private void markCharts(String[] charts, Stream<Boolean> stream, double timeStep, Color color) {
-        List<Boolean> data = stream.collect(Collectors.toList());
-        for (int i = 0, dataSize = data.size(); i < dataSize; i++) {
-            if (data.get(i)) {
+    /**
+     * Replaces the markers of the chart with silent, voiced and voiceless frames.
+     */
+    private void markChart(String chart, FeatureTable features, double timeStep) {
+        XYPlot plot = charts.get(chart).getXYPlot();
+        plot.clearDomainMarkers();
+        markChart(plot, features.getFramesNum(), features::isSilence, timeStep, Color.BLUE);
+        markChart(plot, features.getFramesNum(), features::isVoiced, timeStep, Color.RED);
+        markChart(plot, features.getFramesNum(), features::isVoiceless, timeStep, Color.GREEN);
+    }
+
+    private void markChart(XYPlot plot, int framesNum, IntPredicate marked, double timeStep, Color color) {
+        for (int i = 0; i < framesNum; i++) {
+            if (marked.test(i)) {
                 IntervalMarker marker = new IntervalMarker(timeStep * i, timeStep * (i + 1), color);
                 marker.setAlpha(0.12f);
-                for (String chart : charts) this.charts.get(chart).getXYPlot().addDomainMarker(marker);
+                plot.addDomainMarker(0, marker, Layer.FOREGROUND, false);
             }
         }
+        plot.getChart().fireChartChanged();
     }
 
     private void setCharacteristic(String characteristic, String value) {
         characteristics.get(characteristic).accept(value);
     }
 
-    private void drawHeatMapChart(JScrollPane container, String chartName, List<Frame> frames, double timeStep) {
-        List<Stream<FourierPoint>> data = new ArrayList<>();
-        for (Frame frame : frames) data.add(frame.calculateFrequencies(window).stream());
-        JFreeChart chart = ChartUtils.createHeatMapChart(chartName, data, timeStep);
+    private void drawSpectrogramChart(JScrollPane container, String chartName, SpectrogramDataset dataset) {
+        JFreeChart chart = ChartUtils.createSpectrogramChart(chartName, dataset);
         ChartPanel chartPanel = new ChartPanel(chart);
         container.setViewportView(chartPanel);
         chartPanel.setPreferredSize(new Dimension(container.getWidth() - 24, container.getHeight() - 24));
@@ -216,14 +308,179 @@ public class AnalyzerForm implements Form {
         charts.put(chartName, chart);
     }
 
-    private void drawTimeSeriesChart(JScrollPane container, String chartName, Stream<Float> stream, double timeStep) {
-        JFreeChart chart = ChartUtils.createTimeSeriesChart(chartName, stream, timeStep);
+    private void drawTimeSeriesChart(JScrollPane container, String chartName, float[] data, double timeStep) {
+        drawTimeSeriesChart(container, chartName, data, 0, data.length, timeStep);
+    }
+
+    private void drawTimeSeriesChart(JScrollPane container, String chartName, float[] data, int offset, int length, double timeStep) {
+        JFreeChart chart = ChartUtils.createTimeSeriesChart(chartName, data, offset, length, timeStep);
         ChartPanel chartPanel = new ChartPanel(chart);
         container.setViewportView(chartPanel);
         chartPanel.setPreferredSize(new Dimension(container.getWidth() - 24, container.getHeight() - 24));
         charts.put(chartName, chart);
     }
 
+    /**
+     * Background part of loading or drawing a clip. Results reach the UI through {@link #show(Runnable)} and are
+     * dropped once the job is cancelled or superseded, so a stale job never overwrites newer charts.
+     */
+    private abstract class Job<T> extends SwingWorker<T, Void> {
+
+        /**
+         * Runs the update on the event dispatch thread if the job is still the current one.
+         */
+        void show(Runnable update) {
+            SwingUtilities.invokeLater(() -> {
+                if (job == this && !isCancelled()) update.run();
+            });
+        }
+
+        /**
+         * @param progress percentage of the work done or -1 if unknown
+         */
+        void status(String text, int progress) {
+            show(() -> {
+                progressBar.setIndeterminate(progress < 0);
+                if (progress >= 0) progressBar.setValue(progress);
+                progressBar.setString(text);
+            });
+        }
+
+        void checkCancelled() {
+            if (isCancelled()) throw new CancellationException();
+        }
+
+        abstract void finished(T result);
+
+        @Override
+        protected void done() {
+            if (job != this) return;
+            progressBar.setIndeterminate(false);
+            try {
+                finished(get());
+            } catch (CancellationException e) {
+                progressBar.setValue(0);
+                progressBar.setString("Cancelled");
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+                progressBar.setValue(0);
+                progressBar.setString("Failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (job == this) cancelButton.setEnabled(false);
+        }
+    }
+
+    /**
+     * Decodes and analyzes the file, cancelling it stops decoding and kills ffmpeg if it was started.
+     */
+    private class LoadJob extends Job<Clip> {
+        private final File file;
+
+        LoadJob(File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected Clip doInBackground() throws IOException, InterruptedException {
+            status("Decoding", -1);
+            SampleBuffer samples = new SampleBuffer();
+            int[] seconds = {0};
+            boolean decoded = AudioReader.readFile(file.getAbsolutePath(), config.getSampleRate(), (buffer, offset, length) -> {
+                samples.add(buffer, offset, length);
+                int decodedSeconds = samples.size() / config.getSampleRate();
+                if (decodedSeconds > seconds[0]) status(String.format("Decoding: %d s", seconds[0] = decodedSeconds), -1);
+            });
+            if (!decoded) throw new IOException("couldn't decode " + file.getName());
+            samples.trim();
+            checkCancelled();
+            status("Analyzing", -1);
+            return new Clip(samples, config);
+        }
+
+        @Override
+        void finished(Clip result) {
+            clip = result;
+            graph = new AnalysisGraph(clip, file.getAbsolutePath());
+            drawnKeys.clear();
+            for (JScrollPane panel : views.keySet()) panel.setViewportView(null);
+            drawTimeSeriesChart(amplitudeChartPanel, "Amplitude", clip.getSamples().array(), 0, clip.getSamples().size(), clip.getConfig().getSampleTime());
+            frameRangeLabel.setText(String.format("frame range(<from> <to>, max: %d):", clip.getFramesNum()));
+            setCharacteristic("Total volume", Float.toString(clip.getVolume()));
+            setCharacteristic("Volume Dynamic Range", Float.toString(clip.getVolumeDynamicRange()));
+            setCharacteristic("Average Short Time Energy", Float.toString(clip.getShortTimeEnergy()));
+            setCharacteristic("Minimum volume", Float.toString(clip.getMinVolume()));
+            setCharacteristic("Maximum volume", Float.toString(clip.getMaxVolume()));
+            setCharacteristic("Average Zero Crossing Rate", Float.toString(clip.getAverageZeroCrossingRate()));
+            setCharacteristic("Low Short Time Energy Ratio", Float.toString(clip.getLowShortTimeEnergyRatio()));
+            setCharacteristic("High Zero Crossing Rate Ratio", Float.toString(clip.getHighZeroCrossingRateRatio()));
+            setCharacteristic("Standard Deviation of the ZCR", Float.toString(clip.getStandardDeviationOfTheZCR()));
+            setCharacteristic("Music or Speech", clip.isMusic() ? "Music" : "Speech");
+            ((JFrame) SwingUtilities.getWindowAncestor(mainPanel)).setTitle(file.getName());
+            SwingUtilities.getWindowAncestor(mainPanel).pack();
+            redraw();
+        }
+    }
+
+    /**
+     * Computes the given charts from the analysis graph in order, each chart is shown as soon as it's ready.
+     */
+    private class DrawJob extends Job<Void> {
+        private final AnalysisGraph graph = AnalyzerForm.this.graph;
+        private final AnalysisGraph.Settings settings = AnalyzerForm.this.settings;
+        private final List<JScrollPane> panels;
+
+        DrawJob(List<JScrollPane> panels) {
+            this.panels = panels;
+        }
+
+        boolean isDrawing(List<JScrollPane> panels) {
+            return settings == AnalyzerForm.this.settings && this.panels.containsAll(panels);
+        }
+
+        @Override
+        protected Void doInBackground() {
+            for (JScrollPane panel : panels) {
+                ChartView view = views.get(panel);
+                Object key = view.getKey(settings);
+                Runnable draw = view.compute(graph, settings, (task, done) -> status(task, (int) (100 * done)));
+                show(() -> {
+                    draw.run();
+                    drawnKeys.put(panel, key);
+                });
+            }
+            return null;
+        }
+
+        @Override
+        void finished(Void result) {
+            progressBar.setValue(100);
+            progressBar.setString("Done");
+        }
+    }
+
+    /**
+     * Chart panel drawn from the nodes of the analysis graph.
+     */
+    private interface ChartView {
+        /**
+         * Key of the settings the chart depends on, it's drawn again only when the key changes.
+         */
+        Object getKey(AnalysisGraph.Settings settings);
+
+        /**
+         * Computes the data of the chart on a background thread.
+         *
+         * @return task drawing the chart on the event dispatch thread
+         */
+        Runnable compute(AnalysisGraph graph, AnalysisGraph.Settings settings, AnalysisGraph.Progress progress);
+    }
+
+    private interface ChartComputation {
+        Runnable compute(AnalysisGraph graph, AnalysisGraph.Settings settings, AnalysisGraph.Progress progress);
+    }
+
     private void createUIComponents() {
         String[] columnNames = {"Characteristic", "Value"};
         Object[][] data = {{"Total volume", "0"}, {"Volume Dynamic Range", "0"}, {"Average Short Time Energy", "0"},
@@ -294,7 +551,7 @@ public class AnalyzerForm implements Form {
         ersb3ChartPanel = new JScrollPane();
         tabbedPane1.addTab("ERSB3", ersb3ChartPanel);
         final JPanel panel2 = new JPanel();
-        panel2.setLayout(new GridLayoutManager(2, 6, new Insets(0, 0, 0, 0), -1, -1));
+        panel2.setLayout(new GridLayoutManager(2, 7, new Insets(0, 0, 0, 0), -1, -1));
         panel1.add(panel2, new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 0, false));
         overlapSlider = new JSlider();
         overlapSlider.setMajorTickSpacing(10);
@@ -307,6 +564,9 @@ public class AnalyzerForm implements Form {
         defaultComboBoxModel1.addElement("Rectangle");
         defaultComboBoxModel1.addElement("Van Hann");
         defaultComboBoxModel1.addElement("Hamming");
+        defaultComboBoxModel1.addElement("Blackman");
+        defaultComboBoxModel1.addElement("Blackman-Harris");
+        defaultComboBoxModel1.addElement("Kaiser");
         windowFunctionCombo.setModel(defaultComboBoxModel1);
         panel2.add(windowFunctionCombo, new GridConstraints(1, 2, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_HORIZONTAL, 1, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
         final JLabel label1 = new JLabel();
@@ -330,6 +590,14 @@ public class AnalyzerForm implements Form {
         redrawButton = new JButton();
         redrawButton.setText("Redraw");
         panel2.add(redrawButton, new GridConstraints(0, 5, 2, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, 1, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+        progressBar = new JProgressBar();
+        progressBar.setString("");
+        progressBar.setStringPainted(true);
+        panel2.add(progressBar, new GridConstraints(0, 6, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_WANT_GROW, GridConstraints.SIZEPOLICY_FIXED, null, new Dimension(200, -1), null, 0, false));
+        cancelButton = new JButton();
+        cancelButton.setEnabled(false);
+        cancelButton.setText("Cancel");
+        panel2.add(cancelButton, new GridConstraints(1, 6, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
     }
 
     /**
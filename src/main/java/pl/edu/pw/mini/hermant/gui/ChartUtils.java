@@ -4,15 +4,16 @@ import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.AxisLocation;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.PaintScale;
-import org.jfree.chart.renderer.xy.XYBlockRenderer;
 import org.jfree.chart.title.PaintScaleLegend;
 import org.jfree.chart.ui.RectangleEdge;
 import org.jfree.chart.ui.RectangleInsets;
-import org.jfree.data.xy.*;
-import pl.edu.pw.mini.hermant.audio.Clip;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
 import pl.edu.pw.mini.hermant.audio.FourierPoint;
 
 import javax.swing.*;
@@ -23,21 +24,22 @@ import java.util.stream.Stream;
 
 public class ChartUtils {
 
-    public static JFreeChart createTimeSeriesChart(String chartName, Stream<Float> stream, double timeStep) {
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        XYSeries timeSeries = new XYSeries("");
-        List<Float> data = stream.collect(Collectors.toList());
-        for (int i = 0, dataSize = data.size(); i < dataSize; i++) {
-            timeSeries.add(i * timeStep, data.get(i));
-        }
-        dataset.addSeries(timeSeries);
-        return ChartFactory.createXYLineChart(
+    public static JFreeChart createTimeSeriesChart(String chartName, float[] data, double timeStep) {
+        return createTimeSeriesChart(chartName, data, 0, data.length, timeStep);
+    }
+
+    public static JFreeChart createTimeSeriesChart(String chartName, float[] data, int offset, int length, double timeStep) {
+        SampleDataset dataset = new SampleDataset(data, offset, length, timeStep, SampleDataset.DEFAULT_COLUMNS);
+        JFreeChart chart = ChartFactory.createXYLineChart(
                 "",
                 "Time",
                 chartName,
                 dataset,
                 PlotOrientation.VERTICAL,
                 false, true, false);
+        ValueAxis domainAxis = chart.getXYPlot().getDomainAxis();
+        domainAxis.addChangeListener(event -> dataset.setVisibleRange(domainAxis.getLowerBound(), domainAxis.getUpperBound()));
+        return chart;
     }
 
     public static JFreeChart createXYSeriesChart(String chartName, Stream<FourierPoint> stream) {
@@ -55,34 +57,16 @@ public class ChartUtils {
                 false, true, false);
     }
 
-    public static JFreeChart createHeatMapChart(String chartName, List<Stream<FourierPoint>> streams, double timeStep) {
-        DefaultXYZDataset dataset = new DefaultXYZDataset();
-        for (int i = 0, dataSize = streams.size(); i < dataSize; i++) {
-            double time = i * timeStep;
-            List<FourierPoint> temp = streams.get(i).collect(Collectors.toList());
-            double[][] data = new double[3][temp.size()];
-            for (int i1 = 0; i1 < temp.size(); i1++) {
-                FourierPoint fourierPoint = temp.get(i1);
-                data[0][i1] = time;
-                data[1][i1] = fourierPoint.frequency;
-                data[2][i1] = Math.min(fourierPoint.amplitude, 1f);
-            }
-            dataset.addSeries("Series" + time, data);
-        }
-        return createChart(dataset, (float)timeStep, (float) Clip.SAMPLE_RATE / Clip.SAMPLES_PER_FRAME);
+    public static JFreeChart createSpectrogramChart(String chartName, float[] amplitudes, int bins, double timeStep, AnalysisConfig config) {
+        return createSpectrogramChart(chartName, new SpectrogramDataset(amplitudes, bins, timeStep, config.getBinWidth()));
     }
 
-    private static JFreeChart createChart(XYDataset dataset, float blockX, float blockY) {
+    public static JFreeChart createSpectrogramChart(String chartName, SpectrogramDataset dataset) {
         NumberAxis xAxis = new NumberAxis("Time");
         NumberAxis yAxis = new NumberAxis("Frequency");
-        XYPlot plot = new XYPlot(dataset, xAxis, yAxis, null);
-        XYBlockRenderer r = new XYBlockRenderer();
         SpectrumPaintScale ps = new SpectrumPaintScale(0, 1f);
-        r.setPaintScale(ps);
-        r.setBlockHeight(blockY);
-        r.setBlockWidth(blockX);
-        plot.setRenderer(r);
-        JFreeChart chart = new JFreeChart("Spectrum",
+        XYPlot plot = new SpectrogramPlot(dataset, xAxis, yAxis, ps);
+        JFreeChart chart = new JFreeChart(chartName,
                 JFreeChart.DEFAULT_TITLE_FONT, plot, false);
         NumberAxis scaleAxis = new NumberAxis("Scale");
         scaleAxis.setAxisLinePaint(Color.white);
@@ -0,0 +1,148 @@
+package pl.edu.pw.mini.hermant.gui;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jfree.data.xy.XYDomainInfo;
+
+import java.util.List;
+
+/**
+ * Single series dataset reading evenly spaced values straight from a float array.
+ * When the visible part of the series has more points than four times the number of columns, it's split into
+ * columns and only the first, minimum, maximum and last point of each column are plotted. With at least as many
+ * columns as pixels the drawn line looks the same as with all the points, but drawing takes time proportional to the
+ * columns.
+ * The domain bounds always cover the whole series, so restoring the auto range after zooming shows all of it.
+ */
+public class SampleDataset extends AbstractXYDataset implements DomainInfo, XYDomainInfo {
+    public static final int DEFAULT_COLUMNS = 2048;
+    private static final long serialVersionUID = 1L;
+
+    private final float[] data;
+    private final int offset;
+    private final int length;
+    private final double step;
+    private final int columns;
+    private final Range domainBounds;
+    private final int[] indices;
+    private int from = -1;
+    private int to = -1;
+    private int itemCount;
+    private boolean decimated;
+
+    public SampleDataset(float[] data, double step) {
+        this(data, 0, data.length, step, DEFAULT_COLUMNS);
+    }
+
+    public SampleDataset(float[] data, int offset, int length, double step, int columns) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.step = step;
+        this.columns = columns;
+        this.indices = new int[4 * columns];
+        domainBounds = length == 0 ? null : new Range(0, (length - 1) * step);
+        select(0, length);
+    }
+
+    /**
+     * Limits the plotted points to the given domain range, called when the chart is zoomed.
+     */
+    public void setVisibleRange(double lower, double upper) {
+        int from = (int) Math.max(0, Math.floor(lower / step) - 1);
+        int to = (int) Math.min(length, Math.ceil(upper / step) + 2);
+        if (from >= to || from == this.from && to == this.to) return;
+        select(from, to);
+        fireDatasetChanged();
+    }
+
+    private void select(int from, int to) {
+        this.from = from;
+        this.to = to;
+        int count = to - from;
+        decimated = count > indices.length;
+        if (!decimated) {
+            itemCount = count;
+            return;
+        }
+        itemCount = 0;
+        for (int column = 0; column < columns; column++) {
+            int start = from + (int) ((long) count * column / columns);
+            int end = from + (int) ((long) count * (column + 1) / columns);
+            int min = start, max = start;
+            for (int i = start + 1; i < end; i++) {
+                if (data[offset + i] < data[offset + min]) min = i;
+                else if (data[offset + i] > data[offset + max]) max = i;
+            }
+            add(start);
+            add(Math.min(min, max));
+            add(Math.max(min, max));
+            add(end - 1);
+        }
+    }
+
+    private void add(int index) {
+        if (itemCount == 0 || indices[itemCount - 1] != index) indices[itemCount++] = index;
+    }
+
+    private int index(int item) {
+        return decimated ? indices[item] : from + item;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return 1;
+    }
+
+    @Override
+    public Comparable<String> getSeriesKey(int series) {
+        return "";
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return itemCount;
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return index(item) * step;
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return data[offset + index(item)];
+    }
+
+    @Override
+    public double getDomainLowerBound(boolean includeInterval) {
+        return domainBounds == null ? Double.NaN : domainBounds.getLowerBound();
+    }
+
+    @Override
+    public double getDomainUpperBound(boolean includeInterval) {
+        return domainBounds == null ? Double.NaN : domainBounds.getUpperBound();
+    }
+
+    @Override
+    public Range getDomainBounds(boolean includeInterval) {
+        return domainBounds;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes") // the list is raw in XYDomainInfo
+    public Range getDomainBounds(List visibleSeriesKeys, boolean includeInterval) {
+        return domainBounds;
+    }
+}
@@ -0,0 +1,124 @@
+package pl.edu.pw.mini.hermant.gui;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractXYZDataset;
+
+/**
+ * Amplitudes of consecutive spectra stored frame after frame in a single array.
+ * Item {@code frame * bins + bin} is the cell centered at the time of the frame and the frequency of the bin,
+ * bounds including the interval cover the whole cells.
+ */
+public class SpectrogramDataset extends AbstractXYZDataset implements DomainInfo, RangeInfo {
+    private static final long serialVersionUID = 1L;
+
+    private final float[] amplitudes;
+    private final int bins;
+    private final int framesNum;
+    private final double timeStep;
+    private final double binHeight;
+
+    public SpectrogramDataset(float[] amplitudes, int bins, double timeStep, double binHeight) {
+        this.amplitudes = amplitudes;
+        this.bins = bins;
+        this.framesNum = amplitudes.length / bins;
+        this.timeStep = timeStep;
+        this.binHeight = binHeight;
+    }
+
+    public float getAmplitude(int frame, int bin) {
+        return amplitudes[frame * bins + bin];
+    }
+
+    public int getBins() {
+        return bins;
+    }
+
+    public int getFramesNum() {
+        return framesNum;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public double getBinHeight() {
+        return binHeight;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return 1;
+    }
+
+    @Override
+    public Comparable<String> getSeriesKey(int series) {
+        return "Spectrum";
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return framesNum * bins;
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return item / bins * timeStep;
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return item % bins * binHeight;
+    }
+
+    @Override
+    public Number getZ(int series, int item) {
+        return getZValue(series, item);
+    }
+
+    @Override
+    public double getZValue(int series, int item) {
+        return amplitudes[item];
+    }
+
+    @Override
+    public double getDomainLowerBound(boolean includeInterval) {
+        return includeInterval ? -0.5 * timeStep : 0;
+    }
+
+    @Override
+    public double getDomainUpperBound(boolean includeInterval) {
+        return (framesNum - (includeInterval ? 0.5 : 1)) * timeStep;
+    }
+
+    @Override
+    public Range getDomainBounds(boolean includeInterval) {
+        return new Range(getDomainLowerBound(includeInterval), getDomainUpperBound(includeInterval));
+    }
+
+    @Override
+    public double getRangeLowerBound(boolean includeInterval) {
+        return includeInterval ? -0.5 * binHeight : 0;
+    }
+
+    @Override
+    public double getRangeUpperBound(boolean includeInterval) {
+        return (bins - (includeInterval ? 0.5 : 1)) * binHeight;
+    }
+
+    @Override
+    public Range getRangeBounds(boolean includeInterval) {
+        return new Range(getRangeLowerBound(includeInterval), getRangeUpperBound(includeInterval));
+    }
+}
@@ -0,0 +1,123 @@
+package pl.edu.pw.mini.hermant.gui;
+
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.CrosshairState;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.PaintScale;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Plot drawing a {@link SpectrogramDataset} as images instead of a rectangle per cell.
+ * The spectrogram is cut into tiles of {@value TILE_COLUMNS} columns. At zoom level n a column holds the loudest
+ * cell of 2^n frames, the level is chosen so that a column is still narrower than a pixel. Colours come from a
+ * lookup table built once from the paint scale and the rendered tiles are cached, so panning and repainting only
+ * draw images. The block renderer of the plot is kept for the axis bounds and gridlines, it doesn't draw the cells.
+ */
+public class SpectrogramPlot extends XYPlot {
+    private static final int TILE_COLUMNS = 256;
+    private static final int LUT_SIZE = 256;
+    private static final int MAX_CACHED_TILES = 64;
+    private static final long serialVersionUID = 1L;
+
+    private final SpectrogramDataset dataset;
+    private final int[] lut = new int[LUT_SIZE];
+    private final double lowerBound;
+    private final double upperBound;
+    private final transient Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+
+    public SpectrogramPlot(SpectrogramDataset dataset, ValueAxis domainAxis, ValueAxis rangeAxis, PaintScale scale) {
+        super(dataset, domainAxis, rangeAxis, createRenderer(dataset, scale));
+        this.dataset = dataset;
+        this.lowerBound = scale.getLowerBound();
+        this.upperBound = scale.getUpperBound();
+        for (int i = 0; i < LUT_SIZE; i++) {
+            Paint paint = scale.getPaint(lowerBound + (upperBound - lowerBound) * i / (LUT_SIZE - 1));
+            lut[i] = paint instanceof Color ? ((Color) paint).getRGB() : 0;
+        }
+    }
+
+    private static XYBlockRenderer createRenderer(SpectrogramDataset dataset, PaintScale scale) {
+        XYBlockRenderer renderer = new XYBlockRenderer();
+        renderer.setPaintScale(scale);
+        renderer.setBlockWidth(dataset.getTimeStep());
+        renderer.setBlockHeight(dataset.getBinHeight());
+        return renderer;
+    }
+
+    @Override
+    public boolean render(Graphics2D g2, Rectangle2D dataArea, int index, PlotRenderingInfo info, CrosshairState crosshairState) {
+        if (getDataset(index) != dataset) return super.render(g2, dataArea, index, info, crosshairState);
+        int framesNum = dataset.getFramesNum();
+        if (framesNum == 0) return false;
+        double timeStep = dataset.getTimeStep();
+        ValueAxis domainAxis = getDomainAxis();
+        int firstFrame = (int) Math.max(0, Math.floor(domainAxis.getLowerBound() / timeStep));
+        int lastFrame = (int) Math.min(framesNum - 1, Math.ceil(domainAxis.getUpperBound() / timeStep));
+        if (firstFrame > lastFrame) return false;
+        double framesPerPixel = (lastFrame - firstFrame + 1) / Math.max(1, dataArea.getWidth());
+        int level = framesPerPixel < 2 ? 0 : 31 - Integer.numberOfLeadingZeros((int) framesPerPixel);
+        int tileFrames = TILE_COLUMNS << level;
+
+        Object interpolation = g2.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        int top = (int) Math.round(getRangeAxis().valueToJava2D(dataset.getRangeUpperBound(true), dataArea, getRangeAxisEdge()));
+        int bottom = (int) Math.round(getRangeAxis().valueToJava2D(dataset.getRangeLowerBound(true), dataArea, getRangeAxisEdge()));
+        for (int tile = firstFrame / tileFrames; tile <= lastFrame / tileFrames; tile++) {
+            BufferedImage image = getTile(level, tile);
+            int start = tile * tileFrames;
+            int end = Math.min(start + tileFrames, framesNum);
+            int left = (int) Math.round(domainAxis.valueToJava2D((start - 0.5) * timeStep, dataArea, getDomainAxisEdge()));
+            int right = (int) Math.round(domainAxis.valueToJava2D((end - 0.5) * timeStep, dataArea, getDomainAxisEdge()));
+            g2.drawImage(image, left, top, right, bottom, 0, 0, image.getWidth(), image.getHeight(), null);
+        }
+        if (interpolation != null) g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        return true;
+    }
+
+    private BufferedImage getTile(int level, int tile) {
+        long key = (long) level << 32 | tile;
+        BufferedImage image = tiles.get(key);
+        if (image == null) {
+            image = renderTile(level, tile);
+            tiles.put(key, image);
+        }
+        return image;
+    }
+
+    private BufferedImage renderTile(int level, int tile) {
+        int framesNum = dataset.getFramesNum();
+        int bins = dataset.getBins();
+        int start = tile * (TILE_COLUMNS << level);
+        int columns = Math.min(TILE_COLUMNS, (framesNum - start + (1 << level) - 1) >> level);
+        int[] pixels = new int[columns * bins];
+        for (int column = 0; column < columns; column++) {
+            int from = start + (column << level);
+            int to = Math.min(from + (1 << level), framesNum);
+            for (int bin = 0; bin < bins; bin++) {
+                float amplitude = dataset.getAmplitude(from, bin);
+                for (int frame = from + 1; frame < to; frame++) amplitude = Math.max(amplitude, dataset.getAmplitude(frame, bin));
+                pixels[(bins - 1 - bin) * columns + column] = color(amplitude);
+            }
+        }
+        BufferedImage image = new BufferedImage(columns, bins, BufferedImage.TYPE_INT_RGB);
+        image.getRaster().setDataElements(0, 0, columns, bins, pixels);
+        return image;
+    }
+
+    private int color(double value) {
+        int index = (int) Math.round((value - lowerBound) / (upperBound - lowerBound) * (LUT_SIZE - 1));
+        return lut[Math.max(0, Math.min(LUT_SIZE - 1, index))];
+    }
+}
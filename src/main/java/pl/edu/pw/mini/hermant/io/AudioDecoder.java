@@ -0,0 +1,30 @@
+package pl.edu.pw.mini.hermant.io;
+
+import java.io.IOException;
+
+/**
+ * Decodes an audio file to mono samples at a given sample rate.
+ */
+public interface AudioDecoder {
+    /**
+     * Checks cheaply, e.g. from the header, whether the file is in a format this decoder supports.
+     * Files that can't be read aren't supported, so the next decoder can report the error.
+     */
+    boolean canDecode(String file);
+
+    /**
+     * Number of samples the file decodes to, so that buffers can be allocated up front.
+     *
+     * @return the number of samples or -1 if it isn't known before decoding
+     */
+    default long getSamplesNum(String file, int sampleRate) {
+        return -1;
+    }
+
+    /**
+     * Passes the decoded samples to the sink in chunks, in order.
+     *
+     * @return whether the whole file was decoded
+     */
+    boolean decode(String file, int sampleRate, SampleSink sink) throws IOException, InterruptedException;
+}
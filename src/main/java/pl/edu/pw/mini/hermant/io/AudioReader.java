@@ -0,0 +1,58 @@
+package pl.edu.pw.mini.hermant.io;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.io.IOException;
+
+/**
+ * Decodes audio files to mono samples with the first in-process decoder supporting the file, so that common
+ * formats need neither an ffmpeg process nor ffmpeg installed. Other files are decoded by {@link FFMPEGAudioReader}.
+ */
+public class AudioReader {
+    private static final AudioDecoder[] DECODERS = {new WavDecoder()};
+
+    /**
+     * Decodes the file at the sample rate of {@link AnalysisConfig#getDefault()}.
+     */
+    @Nullable
+    public static SampleBuffer readFile(String file) throws IOException, InterruptedException {
+        return readFile(file, AnalysisConfig.getDefault().getSampleRate());
+    }
+
+    /**
+     * @return the samples or null if decoding failed
+     */
+    @Nullable
+    public static SampleBuffer readFile(String file, int sampleRate) throws IOException, InterruptedException {
+        AudioDecoder decoder = findDecoder(file);
+        if (decoder == null) return FFMPEGAudioReader.readFile(file, sampleRate);
+        long samplesNum = decoder.getSamplesNum(file, sampleRate);
+        SampleBuffer samples = samplesNum >= 0 && samplesNum < Integer.MAX_VALUE ? new SampleBuffer((int) samplesNum) : new SampleBuffer();
+        if (!decoder.decode(file, sampleRate, samples::add)) return null;
+        samples.trim();
+        return samples;
+    }
+
+    public static boolean readFile(String file, SampleSink sink) throws IOException, InterruptedException {
+        return readFile(file, AnalysisConfig.getDefault().getSampleRate(), sink);
+    }
+
+    /**
+     * Decodes the file passing the samples to the sink while it's still being decoded.
+     *
+     * @return whether the file was decoded
+     */
+    public static boolean readFile(String file, int sampleRate, SampleSink sink) throws IOException, InterruptedException {
+        AudioDecoder decoder = findDecoder(file);
+        if (decoder == null) return FFMPEGAudioReader.readFile(file, sampleRate, sink);
+        return decoder.decode(file, sampleRate, sink);
+    }
+
+    @Nullable
+    private static AudioDecoder findDecoder(String file) {
+        for (AudioDecoder decoder : DECODERS) if (decoder.canDecode(file)) return decoder;
+        return null;
+    }
+}
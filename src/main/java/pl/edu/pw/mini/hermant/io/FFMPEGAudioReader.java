@@ -2,72 +2,117 @@ package pl.edu.pw.mini.hermant.io;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
 
+/**
+ * Static access to a shared {@link FFMPEGDecoder}, configured with {@link FFMPEGDecoder#fromSystemProperties()}
+ * by default, and parsing of the f32le streams written by ffmpeg.
+ */
 public class FFMPEGAudioReader {
 
+    private static volatile FFMPEGDecoder decoder = FFMPEGDecoder.fromSystemProperties();
+
+    public static FFMPEGDecoder getDecoder() {
+        return decoder;
+    }
+
+    public static void setDecoder(FFMPEGDecoder decoder) {
+        FFMPEGAudioReader.decoder = decoder;
+    }
+
+    /**
+     * Sets the cache of decoded streams of the shared decoder, null disables caching.
+     */
+    public static void setCache(@Nullable PCMCache cache) {
+        decoder.setCache(cache);
+    }
+
+    /**
+     * Decodes the file at the sample rate of {@link AnalysisConfig#getDefault()}.
+     */
     @Nullable
-    public static List<Float> readFile(String file) throws IOException, InterruptedException {
-        Runtime runtime = Runtime.getRuntime();
-        Process ffmpeg = runtime.exec(new String[]{"ffmpeg", "-i", file, "-vn", "-ar", "44100", "-ac", "1", "-f", "f32le", "-"});
-        List<Float> samples = processOutput(ffmpeg.getInputStream());
-        String error = processError(ffmpeg.getErrorStream());
-        int exit = ffmpeg.waitFor(); // Get exit code;
-        if (exit != 0) System.err.println(error);
-        return exit == 0 ? samples : null;
+    public static SampleBuffer readFile(String file) throws IOException, InterruptedException {
+        return readFile(file, AnalysisConfig.getDefault().getSampleRate());
     }
 
-    @NotNull
-    private static String processError(@NotNull InputStream stream) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        int read;
-        byte[] buffer = new byte[(1024 + 1)];
-        while ((read = stream.read(buffer, 0, 1024)) != -1) {
-            String err = new String(buffer, 0, read);
-            builder.append(err);
-        }
-        return builder.toString();
+    /**
+     * Decodes the file resampled by ffmpeg to the given rate.
+     *
+     * @return the samples or null if ffmpeg failed
+     */
+    @Nullable
+    public static SampleBuffer readFile(String file, int sampleRate) throws IOException, InterruptedException {
+        FFMPEGDecoder decoder = FFMPEGAudioReader.decoder;
+        SampleBuffer cached = decoder.loadCached(file, sampleRate);
+        if (cached != null) return cached;
+        SampleBuffer samples = new SampleBuffer();
+        if (!decoder.decode(file, sampleRate, samples::add)) return null;
+        samples.trim();
+        return samples;
+    }
+
+    public static boolean readFile(String file, SampleSink sink) throws IOException, InterruptedException {
+        return readFile(file, AnalysisConfig.getDefault().getSampleRate(), sink);
+    }
+
+    /**
+     * Decodes the file passing the samples to the sink while ffmpeg is still running.
+     *
+     * @return whether ffmpeg exited successfully
+     */
+    public static boolean readFile(String file, int sampleRate, SampleSink sink) throws IOException, InterruptedException {
+        return decoder.decode(file, sampleRate, sink);
     }
 
     @NotNull
-    public static List<Float> processOutput(InputStream stream) throws IOException {
-        List<Float> samples = new ArrayList<>();
+    public static SampleBuffer processOutput(InputStream stream) throws IOException {
+        SampleBuffer samples = new SampleBuffer();
+        processOutput(stream, samples::add);
+        samples.trim();
+        return samples;
+    }
+
+    /**
+     * Reads f32le samples until the end of the stream.
+     *
+     * @throws InterruptedIOException if the reading thread is interrupted, the interrupt status stays set
+     */
+    public static void processOutput(InputStream stream, SampleSink sink) throws IOException {
         int read;
         int offset = 0;
         byte[] buffer = new byte[Float.BYTES * (1024 + 1)];
+        FloatBuffer floatBuffer = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        float[] samples = new float[1024 + 1];
         int length;
         int residualLength;
         while ((read = stream.read(buffer, offset, Float.BYTES * 1024)) != -1) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Reading samples interrupted");
             length = read + offset;
             residualLength = length % Float.BYTES;
             if (residualLength == 0) {
-                processBuffer(samples, buffer, length);
+                processBuffer(sink, floatBuffer, samples, length);
                 offset = 0;
             } else {
                 length -= residualLength;
-                System.err.println(length);
-                processBuffer(samples, buffer, length);
+                processBuffer(sink, floatBuffer, samples, length);
                 System.arraycopy(buffer, length, buffer, 0, residualLength);
                 offset = residualLength;
             }
         }
-        return samples;
     }
 
-    private static void processBuffer(List<Float> samples, byte[] buffer, int length) {
-        int index = 0;
-        float sample_value;
-        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
-        while (index < length) {
-            sample_value = byteBuffer.getFloat(index);
-            index += Float.BYTES;
-            samples.add(sample_value);
-        }
+    private static void processBuffer(SampleSink sink, FloatBuffer floatBuffer, float[] samples, int length) {
+        int count = length / Float.BYTES;
+        floatBuffer.clear();
+        floatBuffer.get(samples, 0, count);
+        sink.accept(samples, 0, count);
     }
 }
@@ -0,0 +1,334 @@
+package pl.edu.pw.mini.hermant.io;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes files with ffmpeg processes, synchronously or as jobs returning futures.
+ * At most {@code maxProcesses} ffmpeg processes run at once, further decodes wait for one of them to finish.
+ * The standard error of every process is drained on its own thread, so a chatty ffmpeg can't block on a full pipe,
+ * and only its tail is kept for the error message. Samples are read with plain blocking reads, while a shared
+ * watchdog thread checks every running decode each {@value WATCH_MILLIS} ms and kills the process of one that is past
+ * its timeout or whose thread was interrupted, e.g. by cancelling its future. The executable, number of processes and
+ * timeout in seconds can be configured with the {@value PATH_PROPERTY}, {@value PROCESSES_PROPERTY} and
+ * {@value TIMEOUT_PROPERTY} system properties.
+ */
+public class FFMPEGDecoder implements AudioDecoder, Closeable {
+    public static final String PATH_PROPERTY = "soundanalyzer.ffmpeg.path";
+    public static final String PROCESSES_PROPERTY = "soundanalyzer.ffmpeg.processes";
+    public static final String TIMEOUT_PROPERTY = "soundanalyzer.ffmpeg.timeout";
+    private static final int ERROR_TAIL_BYTES = 8 << 10;
+    private static final long WATCH_MILLIS = 50;
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ScheduledExecutorService WATCHDOG =
+            Executors.newSingleThreadScheduledExecutor(daemonThreads("ffmpeg-watchdog"));
+
+    private final String executable;
+    private final int maxProcesses;
+    private final long timeoutNanos;
+    private final Semaphore processes;
+    private final ExecutorService jobs;
+    private final ExecutorService drains;
+    private volatile PCMCache cache;
+
+    /**
+     * @param timeout longest time a single decode may take, including the wait for a free process, 0 for no limit
+     */
+    public FFMPEGDecoder(String executable, int maxProcesses, long timeout, TimeUnit unit, @Nullable PCMCache cache) {
+        if (maxProcesses < 1) throw new IllegalArgumentException("At least one process is required: " + maxProcesses);
+        if (timeout < 0) throw new IllegalArgumentException("Timeout can't be negative: " + timeout);
+        this.executable = executable;
+        this.maxProcesses = maxProcesses;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.cache = cache;
+        processes = new Semaphore(maxProcesses, true);
+        jobs = Executors.newFixedThreadPool(maxProcesses, daemonThreads("ffmpeg-job"));
+        drains = Executors.newCachedThreadPool(daemonThreads("ffmpeg-stderr"));
+    }
+
+    /**
+     * Creates the decoder configured with the system properties described in the class description and the cache
+     * from {@link PCMCache#fromSystemProperties()}. By default ffmpeg is looked up in the path, there are as many
+     * processes as processors and no timeout.
+     */
+    public static FFMPEGDecoder fromSystemProperties() {
+        String executable = System.getProperty(PATH_PROPERTY, "ffmpeg");
+        int maxProcesses = Integer.getInteger(PROCESSES_PROPERTY, Runtime.getRuntime().availableProcessors());
+        long timeout = Long.getLong(TIMEOUT_PROPERTY, 0);
+        return new FFMPEGDecoder(executable, maxProcesses, timeout, TimeUnit.SECONDS, PCMCache.fromSystemProperties());
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Sets the cache of decoded streams, null disables caching.
+     */
+    public void setCache(@Nullable PCMCache cache) {
+        this.cache = cache;
+    }
+
+    @Nullable
+    public PCMCache getCache() {
+        return cache;
+    }
+
+    public String getExecutable() {
+        return executable;
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    /**
+     * ffmpeg decodes every format it knows, failures are reported by decoding.
+     */
+    @Override
+    public boolean canDecode(String file) {
+        return true;
+    }
+
+    /**
+     * @return the whole cached stream or null if the file isn't cached
+     */
+    @Nullable
+    SampleBuffer loadCached(String file, int sampleRate) throws IOException {
+        PCMCache cache = this.cache;
+        return cache == null ? null : cache.load(file, String.join(" ", outputFormat(sampleRate)));
+    }
+
+    /**
+     * Decodes the file on the calling thread, passing the samples to the sink while ffmpeg is still running.
+     * The file is read from the cache instead if it's there and added to it otherwise.
+     *
+     * @return whether ffmpeg exited successfully
+     * @throws IOException          if ffmpeg can't be started or doesn't finish within the timeout
+     * @throws InterruptedIOException if the calling thread is interrupted, the interrupt status stays set
+     */
+    @Override
+    public boolean decode(String file, int sampleRate, SampleSink sink) throws IOException, InterruptedException {
+        String[] format = outputFormat(sampleRate);
+        PCMCache cache = this.cache;
+        if (cache != null && cache.read(file, String.join(" ", format), sink)) return true;
+        PCMCache.Writer writer = cache == null ? null : cache.writer(file, String.join(" ", format));
+        if (writer == null) return run(file, format, sink);
+        try {
+            boolean decoded = run(file, format, (samples, offset, length) -> {
+                writer.accept(samples, offset, length);
+                sink.accept(samples, offset, length);
+            });
+            if (decoded) {
+                try {
+                    writer.commit();
+                } catch (IOException e) {
+                    System.err.println("Couldn't cache decoded " + file + ": " + e);
+                }
+            }
+            return decoded;
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Decodes the file on a job thread. Cancelling the future with interruption kills ffmpeg.
+     *
+     * @return future of the samples, null if ffmpeg failed
+     */
+    public Future<SampleBuffer> submit(String file, int sampleRate) {
+        return jobs.submit(() -> {
+            SampleBuffer cached = loadCached(file, sampleRate);
+            if (cached != null) return cached;
+            SampleBuffer samples = new SampleBuffer();
+            if (!decode(file, sampleRate, samples::add)) return null;
+            samples.trim();
+            return samples;
+        });
+    }
+
+    /**
+     * Decodes the file on a job thread, which passes the samples to the sink as soon as they are read.
+     * Cancelling the future with interruption kills ffmpeg.
+     *
+     * @return future of whether ffmpeg exited successfully
+     */
+    public Future<Boolean> submit(String file, int sampleRate, SampleSink sink) {
+        return jobs.submit(() -> decode(file, sampleRate, sink));
+    }
+
+    /**
+     * Stops the jobs that haven't finished, killing their processes.
+     */
+    @Override
+    public void close() {
+        jobs.shutdownNow();
+        drains.shutdown();
+    }
+
+    static String[] outputFormat(int sampleRate) {
+        return new String[]{"-vn", "-ar", Integer.toString(sampleRate), "-ac", "1", "-f", "f32le"};
+    }
+
+    private boolean run(String file, String[] format, SampleSink sink) throws IOException, InterruptedException {
+        long deadline = timeoutNanos == 0 ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+        String[] command = new String[format.length + 5];
+        command[0] = executable;
+        command[1] = "-nostdin";
+        command[2] = "-i";
+        command[3] = file;
+        System.arraycopy(format, 0, command, 4, format.length);
+        command[command.length - 1] = "-";
+        if (deadline == Long.MAX_VALUE) processes.acquire();
+        else if (!processes.tryAcquire(remaining(deadline, file), TimeUnit.NANOSECONDS)) throw timeout(file);
+        try {
+            Process ffmpeg = new ProcessBuilder(command).start();
+            try {
+                ffmpeg.getOutputStream().close();
+                ErrorDrain error = new ErrorDrain(ffmpeg.getErrorStream());
+                Future<?> drained = drains.submit(error);
+                read(ffmpeg, deadline, file, sink);
+                if (!ffmpeg.waitFor(remaining(deadline, file), TimeUnit.NANOSECONDS)) throw timeout(file);
+                awaitDrained(drained, deadline, file);
+                int exit = ffmpeg.exitValue();
+                if (exit != 0) System.err.println(error.getTail());
+                return exit == 0;
+            } finally {
+                if (ffmpeg.isAlive()) ffmpeg.destroyForcibly(); // Decoding was interrupted, timed out or failed
+            }
+        } finally {
+            processes.release();
+        }
+    }
+
+    /**
+     * Reads the output of the process while the watchdog kills it if the deadline passes or the calling thread is
+     * interrupted, which ends the blocking read.
+     */
+    private void read(Process process, long deadline, String file, SampleSink sink) throws IOException {
+        Watch watch = new Watch(process, Thread.currentThread(), deadline);
+        ScheduledFuture<?> watching = WATCHDOG.scheduleWithFixedDelay(watch, WATCH_MILLIS, WATCH_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            FFMPEGAudioReader.processOutput(process.getInputStream(), sink);
+        } catch (IOException e) {
+            watch.check(file);
+            throw e;
+        } finally {
+            watching.cancel(false);
+        }
+        watch.check(file);
+    }
+
+    private void awaitDrained(Future<?> drained, long deadline, String file) throws IOException, InterruptedException {
+        try {
+            drained.get(remaining(deadline, file), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException("Couldn't read ffmpeg errors", e.getCause());
+        } catch (TimeoutException e) {
+            throw timeout(file);
+        }
+    }
+
+    private long remaining(long deadline, String file) throws IOException {
+        if (deadline == Long.MAX_VALUE) return Long.MAX_VALUE;
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) throw timeout(file);
+        return remaining;
+    }
+
+    private IOException timeout(String file) {
+        return new IOException("ffmpeg didn't decode " + file + " in " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+    }
+
+    /**
+     * Reads the standard error of a process to the end, keeping only the last {@value ERROR_TAIL_BYTES} bytes.
+     */
+    private static class ErrorDrain implements Runnable {
+        private final InputStream stream;
+        private final ByteArrayOutputStream tail = new ByteArrayOutputStream();
+
+        ErrorDrain(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[4096];
+            int read;
+            try {
+                while ((read = stream.read(buffer)) != -1) {
+                    synchronized (tail) {
+                        if (tail.size() + read > 2 * ERROR_TAIL_BYTES) {
+                            byte[] kept = tail.toByteArray();
+                            tail.reset();
+                            tail.write(kept, kept.length - ERROR_TAIL_BYTES, ERROR_TAIL_BYTES);
+                        }
+                        tail.write(buffer, 0, read);
+                    }
+                }
+            } catch (IOException ignored) {
+                // The process was killed
+            }
+        }
+
+        String getTail() {
+            synchronized (tail) {
+                byte[] bytes = tail.toByteArray();
+                int from = Math.max(0, bytes.length - ERROR_TAIL_BYTES);
+                return new String(bytes, from, bytes.length - from, Charset.defaultCharset());
+            }
+        }
+    }
+
+    /**
+     * Kills the process once the deadline passes or the reading thread is interrupted, remembering why.
+     */
+    private class Watch implements Runnable {
+        private final Process process;
+        private final Thread thread;
+        private final long deadline;
+        private volatile boolean interrupted;
+        private volatile boolean timedOut;
+
+        Watch(Process process, Thread thread, long deadline) {
+            this.process = process;
+            this.thread = thread;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            if (!process.isAlive()) return;
+            if (thread.isInterrupted()) interrupted = true;
+            else if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) timedOut = true;
+            else return;
+            process.destroyForcibly();
+        }
+
+        /**
+         * @throws InterruptedIOException if the process was killed because the thread was interrupted
+         * @throws IOException            if the process was killed because it timed out
+         */
+        void check(String file) throws IOException {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Reading samples interrupted");
+            }
+            if (timedOut) throw timeout(file);
+        }
+    }
+}
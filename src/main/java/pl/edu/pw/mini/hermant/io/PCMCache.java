@@ -0,0 +1,246 @@
+package pl.edu.pw.mini.hermant.io;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Directory of decoded f32le streams, so a file is decoded by ffmpeg only once.
+ * Entries are keyed by the source path, size, modification time and decode parameters and are read back
+ * through memory mapping. When the total size exceeds the limit the least recently used entries are deleted.
+ */
+public class PCMCache {
+    public static final String DIRECTORY_PROPERTY = "soundanalyzer.cache.dir";
+    public static final String SIZE_PROPERTY = "soundanalyzer.cache.size";
+    public static final long DEFAULT_MAX_BYTES = 1L << 30;
+    private static final String EXTENSION = ".f32le";
+    private static final int CHUNK_SAMPLES = 1 << 14;
+    private static final int MAP_BYTES = 1 << 26;
+    private static final int MAX_LOADED_SAMPLES = Integer.MAX_VALUE - 8;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public PCMCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates the cache configured with the {@value DIRECTORY_PROPERTY} and {@value SIZE_PROPERTY} properties.
+     *
+     * @return the cache or null if no directory is configured or it can't be created
+     */
+    @Nullable
+    public static PCMCache fromSystemProperties() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) return null;
+        try {
+            return new PCMCache(Paths.get(directory), Long.getLong(SIZE_PROPERTY, DEFAULT_MAX_BYTES));
+        } catch (IOException e) {
+            System.err.println("PCM cache disabled: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Streams the entry into a buffer of its size, mapping one part of the entry at a time.
+     *
+     * @return the whole cached stream or null if the file isn't cached
+     * @throws IOException if the stream has more samples than fit in a buffer
+     */
+    @Nullable
+    public SampleBuffer load(String file, String parameters) throws IOException {
+        String key = key(file, parameters);
+        if (key == null) return null;
+        Path entry = directory.resolve(key);
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            long samplesNum = channel.size() / Float.BYTES;
+            if (samplesNum > MAX_LOADED_SAMPLES)
+                throw new IOException("Cached stream of " + file + " is too long to load: " + samplesNum + " samples");
+            SampleBuffer samples = new SampleBuffer((int) samplesNum);
+            read(channel, samples::add);
+            touch(entry);
+            return samples;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Passes the cached stream to the sink in chunks, of any length.
+     *
+     * @return whether the file was cached
+     */
+    public boolean read(String file, String parameters, SampleSink sink) throws IOException {
+        String key = key(file, parameters);
+        if (key == null) return false;
+        Path entry = directory.resolve(key);
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            read(channel, sink);
+            touch(entry);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps the entry in parts of at most {@value MAP_BYTES} bytes, a single mapping can't exceed 2 GB.
+     */
+    private static void read(FileChannel channel, SampleSink sink) throws IOException {
+        long size = channel.size() / Float.BYTES * Float.BYTES;
+        float[] chunk = new float[CHUNK_SAMPLES];
+        for (long position = 0; position < size; position += MAP_BYTES) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_BYTES, size - position));
+            FloatBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            while (buffer.hasRemaining()) {
+                int count = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, count);
+                sink.accept(chunk, 0, count);
+            }
+        }
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Starts a new entry, samples written to it become visible only after {@link Writer#commit()}.
+     *
+     * @return the writer or null if the file can't be cached
+     */
+    @Nullable
+    public Writer writer(String file, String parameters) throws IOException {
+        String key = key(file, parameters);
+        return key == null ? null : new Writer(directory.resolve(key));
+    }
+
+    /**
+     * Deletes least recently used entries until the cache fits in its size limit.
+     */
+    public synchronized void evict() throws IOException {
+        List<File> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.toString().endsWith(EXTENSION)).map(Path::toFile).forEach(entries::add);
+        }
+        Map<File, Long> lastUsed = new HashMap<>();
+        long total = 0;
+        for (File entry : entries) {
+            lastUsed.put(entry, entry.lastModified());
+            total += entry.length();
+        }
+        entries.sort(Comparator.comparing(lastUsed::get));
+        for (File entry : entries) {
+            if (total <= maxBytes) break;
+            long size = entry.length();
+            if (entry.delete()) total -= size;
+        }
+    }
+
+    /**
+     * @return the name of the entry or null if the source isn't a local file, e.g. it's an URL passed to ffmpeg
+     */
+    @Nullable
+    private static String key(String file, String parameters) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(file);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!Files.isRegularFile(path)) return null;
+        path = path.toRealPath();
+        String source = path + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis() + "|" + parameters;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) builder.append(String.format("%02x", b));
+            return builder.append(EXTENSION).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes samples to a temporary file which is moved in place of the entry on commit and deleted otherwise.
+     */
+    public class Writer implements SampleSink, Closeable {
+        private final Path entry;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SAMPLES * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private IOException failure;
+        private boolean committed;
+
+        private Writer(Path entry) throws IOException {
+            this.entry = entry;
+            this.temporary = Files.createTempFile(directory, "decode", ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Write errors don't interrupt decoding, they only prevent the entry from being committed.
+         */
+        @Override
+        public void accept(float[] samples, int offset, int length) {
+            if (failure != null) return;
+            try {
+                while (length > 0) {
+                    int count = Math.min(length, buffer.remaining() / Float.BYTES);
+                    buffer.asFloatBuffer().put(samples, offset, count);
+                    buffer.position(buffer.position() + count * Float.BYTES);
+                    offset += count;
+                    length -= count;
+                    if (!buffer.hasRemaining()) flush();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        public void commit() throws IOException {
+            if (failure != null) throw failure;
+            flush();
+            channel.close();
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            evict();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            if (!committed) Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package pl.edu.pw.mini.hermant.io;
+
+import java.util.Arrays;
+
+/**
+ * Converts the sample rate of a stream before passing it on to another sink.
+ * Every output sample is interpolated from the input samples within {@value ZERO_CROSSINGS} zero crossings of
+ * a Blackman windowed sinc. When downsampling the cutoff is lowered below the output Nyquist frequency, so higher
+ * frequencies are filtered out instead of aliased. Output times are computed exactly from the two rates, so they
+ * don't drift on long streams. For rates with a large common divisor, e.g. 48000 and 44100 Hz, output samples fall
+ * on a few positions between the input samples and the filters of all of them are computed up front. Otherwise the
+ * filter of every output sample is interpolated from a table of the kernel.
+ */
+public class Resampler implements SampleSink {
+    private static final int ZERO_CROSSINGS = 16;
+    private static final int TABLE_RESOLUTION = 512;
+    private static final double CUTOFF = 0.95;
+    private static final int CHUNK_SAMPLES = 1 << 12;
+    private static final int MAX_FILTER_COEFFICIENTS = 1 << 20;
+    private static final float[] KERNEL = tabulateKernel();
+
+    private final long inputRate;
+    private final long outputRate;
+    private final SampleSink sink;
+    private final float cutoff;
+    private final int reach;
+    private final long phaseStep;
+    private final int phases;
+    private final long step;
+    private final int phaseIncrement;
+    private final float[][] filters;
+    private final float[] filter;
+    private final float[] output = new float[CHUNK_SAMPLES];
+    private int outputFilled;
+    private float[] input = new float[1 << 13];
+    private long inputStart;
+    private int inputFilled;
+    private long produced;
+    private long center;
+    private int phase;
+
+    public Resampler(int inputRate, int outputRate, SampleSink sink) {
+        if (inputRate <= 0 || outputRate <= 0)
+            throw new IllegalArgumentException("Sample rates must be positive: " + inputRate + ", " + outputRate);
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.sink = sink;
+        cutoff = (float) (CUTOFF * Math.min(1.0, (double) outputRate / inputRate));
+        reach = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+        phaseStep = gcd(inputRate, outputRate);
+        phases = (int) (outputRate / phaseStep);
+        step = inputRate / outputRate;
+        phaseIncrement = (int) (inputRate % outputRate / phaseStep);
+        filter = new float[2 * reach + 1];
+        if ((long) phases * filter.length <= MAX_FILTER_COEFFICIENTS) {
+            filters = new float[phases][];
+            for (int phase = 0; phase < phases; phase++) filters[phase] = computeFilter(phase * phaseStep, new float[filter.length]);
+        } else {
+            filters = null;
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static float[] tabulateKernel() {
+        float[] kernel = new float[ZERO_CROSSINGS * TABLE_RESOLUTION + 2];
+        kernel[0] = 1;
+        for (int i = 1; i < ZERO_CROSSINGS * TABLE_RESOLUTION; i++) {
+            double x = (double) i / TABLE_RESOLUTION;
+            double window = 0.42 + 0.5 * Math.cos(Math.PI * x / ZERO_CROSSINGS) + 0.08 * Math.cos(2 * Math.PI * x / ZERO_CROSSINGS);
+            kernel[i] = (float) (Math.sin(Math.PI * x) / (Math.PI * x) * window);
+        }
+        return kernel;
+    }
+
+    @Override
+    public void accept(float[] samples, int offset, int length) {
+        if (inputFilled + length > input.length) {
+            compact();
+            if (inputFilled + length > input.length) input = Arrays.copyOf(input, Math.max(2 * input.length, inputFilled + length));
+        }
+        System.arraycopy(samples, offset, input, inputFilled, length);
+        inputFilled += length;
+        produce(Long.MAX_VALUE, false);
+        flush();
+    }
+
+    /**
+     * Passes on the samples up to the end of the input, which is followed by silence.
+     */
+    public void finish() {
+        long inputEnd = inputStart + inputFilled;
+        produce((inputEnd * outputRate + inputRate - 1) / inputRate, true);
+        flush();
+    }
+
+    /**
+     * Interpolates output samples until the limit or, unless finishing, until an output sample would need input
+     * that hasn't arrived yet. The position of the next output sample is advanced without divisions: the input
+     * sample preceding it moves by the integer part of the rate ratio and the phase, the distance from that sample
+     * in multiples of the greatest common divisor of the rates, by the rest.
+     */
+    private void produce(long limit, boolean finishing) {
+        long inputEnd = inputStart + inputFilled;
+        for (; produced < limit; produced++) {
+            if (!finishing && center + reach >= inputEnd) return;
+            float[] filter = filters != null ? filters[phase] : computeFilter(phase * phaseStep, this.filter);
+            int base = (int) (center - reach - inputStart);
+            int first = (int) Math.max(0, inputStart - (center - reach));
+            int end = (int) Math.min(filter.length, inputEnd - (center - reach));
+            output[outputFilled++] = dot(input, base, filter, first, end);
+            if (outputFilled == output.length) flush();
+            center += step;
+            phase += phaseIncrement;
+            if (phase >= phases) {
+                phase -= phases;
+                center++;
+            }
+        }
+    }
+
+    /**
+     * Sum of the products of the filter coefficients from first to end and the corresponding input samples.
+     * Four independent sums let consecutive multiplications overlap.
+     */
+    private static float dot(float[] input, int base, float[] filter, int first, int end) {
+        float sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = first;
+        for (; i + 3 < end; i += 4) {
+            sum0 += input[base + i] * filter[i];
+            sum1 += input[base + i + 1] * filter[i + 1];
+            sum2 += input[base + i + 2] * filter[i + 2];
+            sum3 += input[base + i + 3] * filter[i + 3];
+        }
+        for (; i < end; i++) sum0 += input[base + i] * filter[i];
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Weights of the input samples from reach before to reach after the one preceding an output sample.
+     *
+     * @param remainder distance of the output sample from the preceding input sample, in input samples times
+     *                  the output rate
+     */
+    private float[] computeFilter(long remainder, float[] filter) {
+        double fraction = (double) remainder / outputRate;
+        for (int i = 0; i < filter.length; i++) filter[i] = cutoff * kernel((float) (cutoff * (reach - i + fraction)));
+        return filter;
+    }
+
+    private static float kernel(float x) {
+        float position = Math.abs(x) * TABLE_RESOLUTION;
+        if (position >= ZERO_CROSSINGS * TABLE_RESOLUTION) return 0;
+        int index = (int) position;
+        float fraction = position - index;
+        return KERNEL[index] + (KERNEL[index + 1] - KERNEL[index]) * fraction;
+    }
+
+    /**
+     * Drops the input samples that no later output sample reaches.
+     */
+    private void compact() {
+        long needed = center - reach;
+        int dropped = (int) Math.max(0, Math.min(needed - inputStart, inputFilled));
+        System.arraycopy(input, dropped, input, 0, inputFilled - dropped);
+        inputFilled -= dropped;
+        inputStart += dropped;
+    }
+
+    private void flush() {
+        if (outputFilled == 0) return;
+        sink.accept(output, 0, outputFilled);
+        outputFilled = 0;
+    }
+}
@@ -0,0 +1,93 @@
+package pl.edu.pw.mini.hermant.io;
+
+/**
+ * Bounded buffer between a single producer decoding a live stream and a single consumer analyzing it.
+ * The producer never blocks: when the consumer falls behind by more than the capacity the oldest samples are
+ * dropped, which bounds the latency of the consumer to the capacity of the buffer.
+ */
+public class SampleRingBuffer implements SampleSink {
+    private final float[] buffer;
+    private long writePosition;
+    private long readPosition;
+    private long lastReadPosition;
+    private long droppedSamples;
+    private boolean closed;
+
+    public SampleRingBuffer(int capacity) {
+        buffer = new float[capacity];
+    }
+
+    @Override
+    public synchronized void accept(float[] samples, int offset, int length) {
+        if (length > buffer.length) {
+            int skipped = length - buffer.length;
+            writePosition += skipped;
+            offset += skipped;
+            length = buffer.length;
+        }
+        for (int i = 0; i < length; ) {
+            int index = (int) (writePosition % buffer.length);
+            int count = Math.min(length - i, buffer.length - index);
+            System.arraycopy(samples, offset + i, buffer, index, count);
+            writePosition += count;
+            i += count;
+        }
+        long overrun = writePosition - readPosition - buffer.length;
+        if (overrun > 0) {
+            readPosition += overrun;
+            droppedSamples += overrun;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the stream, the consumer can still read what's left.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until the given number of samples is available or the stream ends.
+     * Samples returned by a single call are always contiguous, see {@link #getLastReadPosition()}.
+     *
+     * @return the number of read samples, less than requested only at the end of the stream
+     */
+    public synchronized int read(float[] samples, int offset, int length) throws InterruptedException {
+        if (length > buffer.length) throw new IllegalArgumentException("Can't read more than the capacity at once");
+        while (!closed && writePosition - readPosition < length) wait();
+        length = (int) Math.min(length, writePosition - readPosition);
+        lastReadPosition = readPosition;
+        for (int i = 0; i < length; ) {
+            int index = (int) (readPosition % buffer.length);
+            int count = Math.min(length - i, buffer.length - index);
+            System.arraycopy(buffer, index, samples, offset + i, count);
+            readPosition += count;
+            i += count;
+        }
+        return length;
+    }
+
+    /**
+     * Position in the stream of the first sample returned by the last {@link #read}.
+     */
+    public synchronized long getLastReadPosition() {
+        return lastReadPosition;
+    }
+
+    /**
+     * Number of samples written but not read yet.
+     */
+    public synchronized int getBacklog() {
+        return (int) (writePosition - readPosition);
+    }
+
+    public synchronized long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+}
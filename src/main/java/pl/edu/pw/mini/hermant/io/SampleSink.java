@@ -0,0 +1,10 @@
+package pl.edu.pw.mini.hermant.io;
+
+/**
+ * Receives decoded samples in chunks, as soon as they are read.
+ * The passed array may be reused by the caller after the method returns.
+ */
+@FunctionalInterface
+public interface SampleSink {
+    void accept(float[] samples, int offset, int length);
+}
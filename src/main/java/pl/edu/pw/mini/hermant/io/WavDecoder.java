@@ -0,0 +1,219 @@
+package pl.edu.pw.mini.hermant.io;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Decodes WAV files in process, without starting ffmpeg.
+ * Supports 8, 16, 24 and 32 bit integer and 32 and 64 bit float samples, also in the extensible format. The data
+ * chunk is memory mapped in parts of at most {@value MAP_BYTES} bytes and copied in bulk to a heap buffer, whose
+ * reads are cheaper than the ones of the mapped buffer. Channels are averaged into mono and the result is resampled
+ * with {@link Resampler} if the rate of the file differs from the requested one.
+ */
+public class WavDecoder implements AudioDecoder {
+    private static final int MAP_BYTES = 1 << 26;
+    private static final int CHUNK_SAMPLES = 1 << 14;
+    private static final int PCM = 1;
+    private static final int IEEE_FLOAT = 3;
+    private static final int EXTENSIBLE = 0xFFFE;
+
+    @Override
+    public boolean canDecode(String file) {
+        try (FileChannel channel = open(file)) {
+            return channel != null && Format.read(channel) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long getSamplesNum(String file, int sampleRate) {
+        try (FileChannel channel = open(file)) {
+            Format format = channel == null ? null : Format.read(channel);
+            if (format == null) return -1;
+            long framesNum = format.dataLength / format.blockAlign;
+            return (framesNum * sampleRate + format.sampleRate - 1) / format.sampleRate;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return whether the file is a supported WAV file, samples are passed to the sink only if it is
+     * @throws InterruptedIOException if the decoding thread is interrupted, the interrupt status stays set
+     */
+    @Override
+    public boolean decode(String file, int sampleRate, SampleSink sink) throws IOException {
+        try (FileChannel channel = open(file)) {
+            Format format = channel == null ? null : Format.read(channel);
+            if (format == null) return false;
+            Resampler resampler = format.sampleRate == sampleRate ? null : new Resampler(format.sampleRate, sampleRate, sink);
+            SampleSink output = resampler == null ? sink : resampler;
+            float[] chunk = new float[CHUNK_SAMPLES];
+            ByteBuffer block = ByteBuffer.allocate(CHUNK_SAMPLES * format.blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+            long framesNum = format.dataLength / format.blockAlign;
+            int framesPerMap = MAP_BYTES / format.blockAlign;
+            for (long mapped = 0; mapped < framesNum; mapped += framesPerMap) {
+                int count = (int) Math.min(framesPerMap, framesNum - mapped);
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, format.dataOffset + mapped * format.blockAlign,
+                        (long) count * format.blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+                for (int frame = 0; frame < count; frame += chunk.length) {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Decoding interrupted");
+                    int length = Math.min(chunk.length, count - frame);
+                    data.position(frame * format.blockAlign);
+                    data.get(block.array(), 0, length * format.blockAlign);
+                    format.downmix(block, chunk, length);
+                    output.accept(chunk, 0, length);
+                }
+            }
+            if (resampler != null) resampler.finish();
+            return true;
+        }
+    }
+
+    /**
+     * @return the channel or null if the file isn't a local regular file
+     */
+    @Nullable
+    private static FileChannel open(String file) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(file);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!Files.isRegularFile(path)) return null;
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Sample format and location of the samples, read from the fmt and data chunks.
+     */
+    private static class Format {
+        final int encoding;
+        final int channels;
+        final int sampleRate;
+        final int blockAlign;
+        final int sampleBytes;
+        final long dataOffset;
+        final long dataLength;
+
+        private Format(int encoding, int channels, int sampleRate, int blockAlign, long dataOffset, long dataLength) {
+            this.encoding = encoding;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.blockAlign = blockAlign;
+            this.sampleBytes = blockAlign / channels;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        /**
+         * Walks the chunks of the RIFF file up to the data chunk. A data chunk with a length past the end of the
+         * file, as left by an interrupted recording, is cut at the end of the file.
+         *
+         * @return the format or null if it isn't a WAV file or its samples aren't supported
+         */
+        @Nullable
+        static Format read(FileChannel channel) throws IOException {
+            long size = channel.size();
+            ByteBuffer header = read(channel, 0, 12);
+            if (header == null || !"RIFF".equals(id(header, 0)) || !"WAVE".equals(id(header, 8))) return null;
+            ByteBuffer fmt = null;
+            for (long position = 12; position + 8 <= size; ) {
+                ByteBuffer chunk = read(channel, position, 8);
+                if (chunk == null) return null;
+                String id = id(chunk, 0);
+                long length = chunk.getInt(4) & 0xFFFFFFFFL;
+                if ("fmt ".equals(id)) {
+                    fmt = read(channel, position + 8, (int) Math.min(length, 40));
+                } else if ("data".equals(id)) {
+                    long dataOffset = position + 8;
+                    return fmt == null ? null : create(fmt, dataOffset, Math.min(length, size - dataOffset));
+                }
+                position += 8 + length + (length & 1);
+            }
+            return null;
+        }
+
+        @Nullable
+        private static Format create(ByteBuffer fmt, long dataOffset, long dataLength) {
+            if (fmt.limit() < 16) return null;
+            int encoding = fmt.getShort(0) & 0xFFFF;
+            if (encoding == EXTENSIBLE) {
+                if (fmt.limit() < 26) return null;
+                encoding = fmt.getShort(24) & 0xFFFF;
+            }
+            int channels = fmt.getShort(2) & 0xFFFF;
+            int sampleRate = fmt.getInt(4);
+            int blockAlign = fmt.getShort(12) & 0xFFFF;
+            if (channels == 0 || sampleRate <= 0 || blockAlign == 0 || blockAlign % channels != 0) return null;
+            int sampleBytes = blockAlign / channels;
+            boolean supported = encoding == PCM ? sampleBytes >= 1 && sampleBytes <= 4
+                    : encoding == IEEE_FLOAT && (sampleBytes == 4 || sampleBytes == 8);
+            return supported ? new Format(encoding, channels, sampleRate, blockAlign, dataOffset, dataLength) : null;
+        }
+
+        /**
+         * Averages the channels of the frames at the start of the data, samples are scaled to [-1, 1) the same way
+         * ffmpeg does.
+         */
+        void downmix(ByteBuffer data, float[] samples, int length) {
+            Arrays.fill(samples, 0, length, 0);
+            for (int channel = 0; channel < channels; channel++) addChannel(data, channel * sampleBytes, samples, length);
+            if (channels == 1) return;
+            float scale = 1f / channels;
+            for (int i = 0; i < length; i++) samples[i] *= scale;
+        }
+
+        /**
+         * Adds the samples of one channel, a loop per sample format keeps the format checks out of the loops.
+         */
+        private void addChannel(ByteBuffer data, int position, float[] samples, int length) {
+            if (encoding == IEEE_FLOAT && sampleBytes == 4) {
+                for (int i = 0; i < length; i++, position += blockAlign) samples[i] += data.getFloat(position);
+            } else if (encoding == IEEE_FLOAT) {
+                for (int i = 0; i < length; i++, position += blockAlign) samples[i] += (float) data.getDouble(position);
+            } else if (sampleBytes == 1) {
+                for (int i = 0; i < length; i++, position += blockAlign) samples[i] += ((data.get(position) & 0xFF) - 128) / 128f;
+            } else if (sampleBytes == 2) {
+                for (int i = 0; i < length; i++, position += blockAlign) samples[i] += data.getShort(position) / 32768f;
+            } else if (sampleBytes == 3) {
+                for (int i = 0; i < length; i++, position += blockAlign) {
+                    int sample = data.get(position + 2) << 16 | (data.get(position + 1) & 0xFF) << 8 | data.get(position) & 0xFF;
+                    samples[i] += sample / 8388608f;
+                }
+            } else {
+                for (int i = 0; i < length; i++, position += blockAlign) samples[i] += data.getInt(position) / 2147483648f;
+            }
+        }
+
+        @Nullable
+        private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) return null;
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private static String id(ByteBuffer buffer, int offset) {
+            byte[] id = new byte[4];
+            for (int i = 0; i < 4; i++) id[i] = buffer.get(offset + i);
+            return new String(id, StandardCharsets.US_ASCII);
+        }
+    }
+}
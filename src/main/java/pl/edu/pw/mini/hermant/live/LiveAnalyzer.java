@@ -0,0 +1,112 @@
+package pl.edu.pw.mini.hermant.live;
+
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.Clip;
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.FrameSequence;
+import pl.edu.pw.mini.hermant.audio.RollingStatistics;
+import pl.edu.pw.mini.hermant.io.FFMPEGAudioReader;
+import pl.edu.pw.mini.hermant.io.SampleRingBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Analyzes an unbounded f32le mono stream at the configured sample rate, e.g. an encoder's output piped to stdin or a FIFO.
+ * The stream is parsed on its own thread into a ring buffer holding at most {@code latencyFrames} frames of samples,
+ * when the analysis can't keep up the oldest samples are dropped instead of letting the latency grow.
+ * Every frame is passed to the consumer as soon as its last sample arrives.
+ */
+public class LiveAnalyzer {
+    private final AnalysisConfig config;
+    private final int hop;
+    private final int latencyFrames;
+    private final int windowFrames;
+    private volatile IOException readFailure;
+
+    /**
+     * @param overlap       overlap of consecutive frames, as in {@link Clip#getOverlappingFrames(float)}
+     * @param latencyFrames maximum number of frames of samples waiting for analysis
+     * @param windowFrames  number of frames the rolling clip-level characteristics are calculated over
+     */
+    public LiveAnalyzer(float overlap, int latencyFrames, int windowFrames) {
+        this(AnalysisConfig.getDefault(), overlap, latencyFrames, windowFrames);
+    }
+
+    public LiveAnalyzer(AnalysisConfig config, float overlap, int latencyFrames, int windowFrames) {
+        if (latencyFrames < 1 || windowFrames < 1) throw new IllegalArgumentException("Latency and window must be positive");
+        this.config = config;
+        this.hop = FrameSequence.getHop(overlap, config);
+        this.latencyFrames = latencyFrames;
+        this.windowFrames = windowFrames;
+    }
+
+    public AnalysisConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Analyzes the stream until it ends, blocking the calling thread.
+     */
+    public void analyze(InputStream stream, Consumer<LiveFrame> consumer) throws IOException, InterruptedException {
+        SampleRingBuffer buffer = new SampleRingBuffer(latencyFrames * config.getFrameLength());
+        Thread reader = new Thread(() -> {
+            try {
+                FFMPEGAudioReader.processOutput(stream, buffer);
+            } catch (IOException e) {
+                readFailure = e;
+            } finally {
+                buffer.close();
+            }
+        }, "live-pcm-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            analyze(buffer, consumer);
+        } finally {
+            reader.interrupt();
+        }
+        if (readFailure != null) throw readFailure;
+    }
+
+    private void analyze(SampleRingBuffer buffer, Consumer<LiveFrame> consumer) throws InterruptedException {
+        int length = config.getFrameLength();
+        float[] samples = new float[length];
+        RollingStatistics statistics = new RollingStatistics(windowFrames);
+        long index = 0;
+        long frameStart = 0;
+        long expectedPosition = 0;
+        int filled = 0;
+        while (true) {
+            int needed = length - filled;
+            int read = buffer.read(samples, filled, needed);
+            long position = buffer.getLastReadPosition();
+            if (filled > 0 && position != expectedPosition) {
+                // samples were dropped, what's left of the previous frame isn't contiguous with the new ones
+                System.arraycopy(samples, filled, samples, 0, read);
+                filled = 0;
+            }
+            if (filled == 0) frameStart = position;
+            filled += read;
+            expectedPosition = position + read;
+            if (filled < length) {
+                if (read < needed) return;
+                continue;
+            }
+
+            Frame frame = new Frame(samples, 0, length, 0, config);
+            frame.calculateZeroCrossingRate();
+            statistics.addFrame(frame.getShortTimeEnergy(), frame.getZeroCrossingRate());
+            consumer.accept(new LiveFrame(index++, frameStart, frame.getVolume(), frame.getShortTimeEnergy(),
+                    frame.getZeroCrossingRate(), frame.isSilence(), frame.isVoiced(), frame.isVoiceless(),
+                    statistics.getLowShortTimeEnergyRatio(), statistics.getHighZeroCrossingRateRatio(),
+                    statistics.getStandardDeviationOfTheZCR(), statistics.isMusic(), buffer.getBacklog(),
+                    buffer.getDroppedSamples()));
+
+            System.arraycopy(samples, hop, samples, 0, length - hop);
+            filled = length - hop;
+            frameStart += hop;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package pl.edu.pw.mini.hermant.live;
+
+/**
+ * Features of one frame of a live stream together with the rolling clip-level characteristics at that frame.
+ */
+public class LiveFrame {
+    private final long index;
+    private final long frameStart;
+    private final float volume, ste, zcr;
+    private final boolean silence, voiced, voiceless;
+    private final float lster, hzcrr, zstd;
+    private final boolean music;
+    private final int backlog;
+    private final long droppedSamples;
+
+    LiveFrame(long index, long frameStart, float volume, float ste, float zcr, boolean silence, boolean voiced,
+              boolean voiceless, float lster, float hzcrr, float zstd, boolean music, int backlog, long droppedSamples) {
+        this.index = index;
+        this.frameStart = frameStart;
+        this.volume = volume;
+        this.ste = ste;
+        this.zcr = zcr;
+        this.silence = silence;
+        this.voiced = voiced;
+        this.voiceless = voiceless;
+        this.lster = lster;
+        this.hzcrr = hzcrr;
+        this.zstd = zstd;
+        this.music = music;
+        this.backlog = backlog;
+        this.droppedSamples = droppedSamples;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Position of the first sample of the frame in the stream, including dropped samples.
+     */
+    public long getFrameStart() {
+        return frameStart;
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+
+    public float getShortTimeEnergy() {
+        return ste;
+    }
+
+    public float getZeroCrossingRate() {
+        return zcr;
+    }
+
+    public boolean isSilence() {
+        return silence;
+    }
+
+    public boolean isVoiced() {
+        return voiced;
+    }
+
+    public boolean isVoiceless() {
+        return voiceless;
+    }
+
+    public float getLowShortTimeEnergyRatio() {
+        return lster;
+    }
+
+    public float getHighZeroCrossingRateRatio() {
+        return hzcrr;
+    }
+
+    public float getStandardDeviationOfTheZCR() {
+        return zstd;
+    }
+
+    public boolean isMusic() {
+        return music;
+    }
+
+    /**
+     * Samples received but not analyzed yet when the frame was emitted, the current latency of the analysis.
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Total number of samples dropped so far to stay within the latency budget.
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+}
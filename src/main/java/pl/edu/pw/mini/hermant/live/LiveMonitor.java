@@ -0,0 +1,74 @@
+package pl.edu.pw.mini.hermant.live;
+
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Locale;
+
+/**
+ * Command line monitor of a live f32le mono feed read from stdin, a FIFO or a local TCP socket, at the sample rate of
+ * {@link AnalysisConfig#getDefault()}, 44.1 kHz unless configured otherwise.
+ * Prints one CSV line per frame, e.g. {@code ffmpeg -i <input> -ar 44100 -ac 1 -f f32le - | java ... --live -}
+ */
+public class LiveMonitor {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String source = "-";
+        int port = -1;
+        float overlap = 0.0f;
+        int latencyFrames = 10;
+        int windowFrames = 45;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-p":
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-o":
+                case "--overlap":
+                    overlap = Float.parseFloat(args[++i]);
+                    break;
+                case "-l":
+                case "--latency":
+                    latencyFrames = Integer.parseInt(args[++i]);
+                    break;
+                case "-w":
+                case "--window":
+                    windowFrames = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    source = args[i];
+            }
+        }
+        LiveAnalyzer analyzer = new LiveAnalyzer(overlap, latencyFrames, windowFrames);
+        PrintStream out = System.out;
+        out.println("time,volume,ste,zcr,silence,voiced,voiceless,lster,hzcrr,zcr_std,type,backlog,dropped");
+        if (port >= 0) {
+            try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+                 Socket socket = server.accept()) {
+                analyzer.analyze(new BufferedInputStream(socket.getInputStream()), frame -> print(out, frame, analyzer.getConfig()));
+            }
+        } else {
+            try (InputStream stream = "-".equals(source) ? System.in : new FileInputStream(source)) {
+                analyzer.analyze(stream, frame -> print(out, frame, analyzer.getConfig()));
+            }
+        }
+        out.flush();
+    }
+
+    private static void print(PrintStream out, LiveFrame frame, AnalysisConfig config) {
+        out.printf(Locale.ROOT, "%.3f,%s,%s,%s,%b,%b,%b,%s,%s,%s,%s,%d,%d%n",
+                frame.getFrameStart() * config.getSampleTime(), frame.getVolume(), frame.getShortTimeEnergy(),
+                frame.getZeroCrossingRate(), frame.isSilence(), frame.isVoiced(), frame.isVoiceless(),
+                frame.getLowShortTimeEnergyRatio(), frame.getHighZeroCrossingRateRatio(),
+                frame.getStandardDeviationOfTheZCR(), frame.isMusic() ? "music" : "speech", frame.getBacklog(),
+                frame.getDroppedSamples());
+    }
+}
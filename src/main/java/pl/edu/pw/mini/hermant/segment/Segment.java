@@ -0,0 +1,39 @@
+package pl.edu.pw.mini.hermant.segment;
+
+import java.util.Locale;
+
+/**
+ * Interval of a recording with a single type, times are in seconds.
+ */
+public class Segment {
+    private final double start;
+    private final double end;
+    private final SegmentType type;
+
+    public Segment(double start, double end, SegmentType type) {
+        this.start = start;
+        this.end = end;
+        this.type = type;
+    }
+
+    public double getStart() {
+        return start;
+    }
+
+    public double getEnd() {
+        return end;
+    }
+
+    public double getDuration() {
+        return end - start;
+    }
+
+    public SegmentType getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.3f-%.3f %s", start, end, type);
+    }
+}
@@ -0,0 +1,167 @@
+package pl.edu.pw.mini.hermant.segment;
+
+import org.jetbrains.annotations.Nullable;
+import pl.edu.pw.mini.hermant.audio.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Music, speech and silence timeline of a recording.
+ * Segments of {@code windowFrames} frames start every {@code hopFrames} frames. A segment is silence when at least
+ * half of its frames are silent, music when its low short time energy ratio is below 0.5, as in
+ * {@link ClipStatistics#isMusic()}, and speech otherwise. The window slides over {@link SlidingStatistics} and a
+ * running count of silent frames, so a hop costs the same however long the segments are. The type of a segment
+ * covers the hop from its start, the last one up to the end of the recording, and consecutive segments of the same
+ * type are merged into a single interval.
+ */
+public class SegmentAnalyzer {
+    public static final double DEFAULT_SEGMENT_SECONDS = 1.0;
+    public static final double DEFAULT_HOP_SECONDS = 0.5;
+
+    private final AnalysisConfig config;
+    private final int windowFrames;
+    private final int hopFrames;
+
+    public SegmentAnalyzer(AnalysisConfig config) {
+        this(config, DEFAULT_SEGMENT_SECONDS, DEFAULT_HOP_SECONDS);
+    }
+
+    /**
+     * Segment and hop lengths are rounded to whole frames of the configuration.
+     */
+    public SegmentAnalyzer(AnalysisConfig config, double segmentSeconds, double hopSeconds) {
+        this(config, (int) Math.max(1, Math.round(segmentSeconds / config.getHopTime())),
+                (int) Math.max(1, Math.round(hopSeconds / config.getHopTime())));
+    }
+
+    public SegmentAnalyzer(AnalysisConfig config, int windowFrames, int hopFrames) {
+        if (windowFrames < 1 || hopFrames < 1) throw new IllegalArgumentException("Window and hop must be positive");
+        this.config = config;
+        this.windowFrames = windowFrames;
+        this.hopFrames = hopFrames;
+    }
+
+    /**
+     * Decodes and classifies the file, keeping only volume, energy and ZCR of every frame instead of the samples.
+     *
+     * @return the timeline or null if decoding failed
+     */
+    @Nullable
+    public List<Segment> analyze(String file) throws IOException, InterruptedException {
+        SampleBuffer volumes = new SampleBuffer(1 << 12);
+        SampleBuffer energies = new SampleBuffer(1 << 12);
+        SampleBuffer zcrs = new SampleBuffer(1 << 12);
+        ClipStatistics statistics = Clip.analyze(file, config, frame -> {
+            volumes.add(frame.getVolume());
+            energies.add(frame.getShortTimeEnergy());
+            zcrs.add(frame.getZeroCrossingRate());
+        });
+        if (statistics == null) return null;
+        return classify(volumes.array(), energies.array(), zcrs.array(), volumes.size());
+    }
+
+    /**
+     * Classifies the frames of a clip analyzed with the configuration of this analyzer.
+     */
+    public List<Segment> classify(Clip clip) {
+        List<Frame> frames = clip.getFrames();
+        int framesNum = frames.size();
+        float[] volumes = new float[framesNum], energies = new float[framesNum], zcrs = new float[framesNum];
+        for (int i = 0; i < framesNum; i++) {
+            Frame frame = frames.get(i);
+            volumes[i] = frame.getVolume();
+            energies[i] = frame.getShortTimeEnergy();
+            zcrs[i] = frame.getZeroCrossingRate();
+        }
+        return classify(volumes, energies, zcrs, framesNum);
+    }
+
+    /**
+     * Classifies the first framesNum frames given by their features. A recording shorter than a segment is
+     * a single segment.
+     */
+    public List<Segment> classify(float[] volumes, float[] energies, float[] zcrs, int framesNum) {
+        List<Segment> timeline = new ArrayList<>();
+        if (framesNum == 0) return timeline;
+        SlidingStatistics statistics = new SlidingStatistics(energies, zcrs, framesNum);
+        int window = Math.min(windowFrames, framesNum);
+        int silent = 0;
+        for (int frame = 0; frame < window; frame++) {
+            statistics.add(frame);
+            if (Frame.isSilence(volumes[frame], zcrs[frame])) silent++;
+        }
+        double frameStep = config.getHopTime();
+        for (int start = 0; ; start += hopFrames) {
+            SegmentType type = 2 * silent >= window ? SegmentType.SILENCE
+                    : statistics.isMusic() ? SegmentType.MUSIC : SegmentType.SPEECH;
+            boolean last = start + hopFrames + window > framesNum;
+            int end = last ? framesNum : start + hopFrames;
+            append(timeline, start * frameStep, end * frameStep, type);
+            if (last) return timeline;
+            for (int frame = start; frame < start + hopFrames; frame++) {
+                statistics.remove(frame);
+                if (Frame.isSilence(volumes[frame], zcrs[frame])) silent--;
+                int added = frame + window;
+                statistics.add(added);
+                if (Frame.isSilence(volumes[added], zcrs[added])) silent++;
+            }
+        }
+    }
+
+    private static void append(List<Segment> timeline, double start, double end, SegmentType type) {
+        int last = timeline.size() - 1;
+        if (last >= 0 && timeline.get(last).getType() == type) {
+            start = timeline.remove(last).getStart();
+        }
+        timeline.add(new Segment(start, end, type));
+    }
+
+    public int getWindowFrames() {
+        return windowFrames;
+    }
+
+    public int getHopFrames() {
+        return hopFrames;
+    }
+
+    /**
+     * Prints the timeline of a file as CSV, one interval per line.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String file = null;
+        double segmentSeconds = DEFAULT_SEGMENT_SECONDS;
+        double hopSeconds = DEFAULT_HOP_SECONDS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-s":
+                case "--segment":
+                    segmentSeconds = Double.parseDouble(args[++i]);
+                    break;
+                case "-h":
+                case "--hop":
+                    hopSeconds = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    file = args[i];
+            }
+        }
+        if (file == null) {
+            System.err.println("usage: --segments <file> [-s segment-seconds] [-h hop-seconds]");
+            System.exit(2);
+        }
+        List<Segment> timeline = new SegmentAnalyzer(AnalysisConfig.getDefault(), segmentSeconds, hopSeconds).analyze(file);
+        if (timeline == null) {
+            System.err.println("Couldn't decode " + file);
+            System.exit(1);
+        }
+        PrintStream out = System.out;
+        out.println("start,end,type");
+        for (Segment segment : timeline)
+            out.printf(Locale.ROOT, "%.3f,%.3f,%s%n", segment.getStart(), segment.getEnd(), segment.getType().name().toLowerCase(Locale.ROOT));
+        out.flush();
+    }
+}
@@ -0,0 +1,5 @@
+package pl.edu.pw.mini.hermant.segment;
+
+public enum SegmentType {
+    SILENCE, SPEECH, MUSIC
+}
@@ -0,0 +1,61 @@
+package pl.edu.pw.mini.hermant.audio.kernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels written with the incubating Vector API, using the widest vectors the CPU supports.
+ * Loaded reflectively by {@link Kernels}, the remainders shorter than a vector are handled by the scalar code.
+ */
+class VectorKernels extends ScalarKernels {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public String getName() {
+        return "Vector (" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    public float sumOfSquares(float[] samples, int offset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0, bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector vector = FloatVector.fromArray(SPECIES, samples, offset + i);
+            sum = vector.fma(vector, sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + super.sumOfSquares(samples, offset + i, length - i);
+    }
+
+    @Override
+    public int signChanges(float[] samples, int offset, int length) {
+        if (length < 2) return 0;
+        int pairs = length - 1;
+        int changes = 0;
+        int i = 0, bound = SPECIES.loopBound(pairs);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector current = FloatVector.fromArray(SPECIES, samples, offset + i);
+            FloatVector next = FloatVector.fromArray(SPECIES, samples, offset + i + 1);
+            VectorMask<Float> currentPositive = current.compare(VectorOperators.GT, 0f);
+            VectorMask<Float> nextPositive = next.compare(VectorOperators.GT, 0f);
+            VectorMask<Float> currentNegative = current.compare(VectorOperators.LT, 0f);
+            VectorMask<Float> nextNegative = next.compare(VectorOperators.LT, 0f);
+            VectorMask<Float> positiveChanged = currentPositive.andNot(nextPositive).or(nextPositive.andNot(currentPositive));
+            VectorMask<Float> negativeChanged = currentNegative.andNot(nextNegative).or(nextNegative.andNot(currentNegative));
+            changes += positiveChanged.or(negativeChanged).trueCount();
+        }
+        return changes + super.signChanges(samples, offset + i, length - i);
+    }
+
+    @Override
+    public void multiply(float[] source, int sourceOffset, float[] coefficients, float[] destination, int destinationOffset, int length) {
+        int i = 0, bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, source, sourceOffset + i)
+                    .mul(FloatVector.fromArray(SPECIES, coefficients, i))
+                    .intoArray(destination, destinationOffset + i);
+        }
+        for (; i < length; i++) destination[destinationOffset + i] = source[sourceOffset + i] * coefficients[i];
+    }
+}
@@ -0,0 +1,142 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.pitch.YinPitchDetector;
+import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
+import pl.edu.pw.mini.hermant.io.AudioReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureFileTest {
+    private static final AnalysisConfig CONFIG = AnalysisConfig.getDefault();
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    @TempDir
+    Path directory;
+    private String audioFile;
+    private Path featureFile;
+    private FeatureTable expected;
+
+    @BeforeEach
+    void writeAudio() throws IOException, InterruptedException {
+        Path wav = directory.resolve("clip.wav");
+        Signals.writeWav(wav, Signals.speechLike(5 * CONFIG.getSampleRate(), 180, 1), CONFIG.getSampleRate());
+        audioFile = wav.toString();
+        featureFile = directory.resolve("clip.features");
+        SampleBuffer samples = AudioReader.readFile(audioFile, CONFIG.getSampleRate());
+        expected = new FeatureExtractor(new HammingAudioWindow()).extract(new Clip(samples, CONFIG).getFrames());
+    }
+
+    @Test
+    void matchesExtractor() throws IOException, InterruptedException {
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, new FeatureExtractor(new HammingAudioWindow()))) {
+            assertEquals(expected.getFramesNum(), features.getFramesNum());
+            assertEquals(EnumSet.allOf(Feature.class), features.getFeatures());
+            for (Feature feature : Feature.values())
+                assertArrayEquals(expected.getColumn(feature), features.read(feature, 0, features.getFramesNum()), feature.name());
+        }
+    }
+
+    @Test
+    void readsTimeRange() throws IOException, InterruptedException {
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, new FeatureExtractor(new HammingAudioWindow()))) {
+            int from = features.getFrame(1.0);
+            int to = features.getFrame(2.5);
+            assertTrue(features.getFrameTime(from) >= 1.0 && features.getFrameTime(from - 1) < 1.0);
+            float[] column = expected.getColumn(Feature.FREQUENCY_CENTROID);
+            assertArrayEquals(Arrays.copyOfRange(column, from, to), features.read(Feature.FREQUENCY_CENTROID, 1.0, 2.5));
+        }
+    }
+
+    @Test
+    void matchesExtractorOfDecodedFrames() throws IOException, InterruptedException {
+        SampleBuffer samples = AudioReader.readFile(audioFile, CONFIG.getSampleRate());
+        FrameSequence frames = new Clip(samples, CONFIG).getOverlappingFrames(0.5f);
+        FeatureExtractor extractor = new FeatureExtractor(new HammingAudioWindow());
+        FeatureTable overlapping = extractor.extract(frames);
+        int[] reported = {0};
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, frames, extractor, extracted -> reported[0] = extracted)) {
+            assertEquals(frames.size(), reported[0]);
+            assertEquals(frames.getHop(), features.getParameters().getFrameHop());
+            for (Feature feature : Feature.values())
+                assertArrayEquals(overlapping.getColumn(feature), features.read(feature, 0, frames.size()), feature.name());
+        }
+    }
+
+    @Test
+    void keepsFramingOfEachOverload() throws IOException, InterruptedException {
+        SampleBuffer samples = AudioReader.readFile(audioFile, CONFIG.getSampleRate());
+        Clip clip = new Clip(samples, CONFIG);
+        FrameSequence frames = clip.getOverlappingFrames(0.0f);
+        assertEquals(CONFIG.getHop(), frames.getHop());
+        assertNotEquals(clip.getFramesNum(), frames.size());
+        FeatureExtractor extractor = new FeatureExtractor(new HammingAudioWindow(), EnumSet.of(Feature.VOLUME));
+        FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, extractor).close();
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, frames, extractor, extracted -> {
+        })) {
+            assertEquals(frames.size(), features.getFramesNum());
+        }
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, extractor)) {
+            assertEquals(clip.getFramesNum(), features.getFramesNum());
+        }
+    }
+
+    @Test
+    void reusesCurrentFile() throws IOException, InterruptedException {
+        FeatureExtractor extractor = new FeatureExtractor(new HammingAudioWindow());
+        FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, extractor).close();
+        Files.setLastModifiedTime(featureFile, OLD);
+        FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, extractor).close();
+        assertEquals(OLD, Files.getLastModifiedTime(featureFile));
+    }
+
+    @Test
+    void recomputesForOtherPitchDetectorThreshold() throws IOException, InterruptedException {
+        HammingAudioWindow window = new HammingAudioWindow();
+        FeatureExtractor strict = new FeatureExtractor(window, EnumSet.of(Feature.BASE_TONE), new YinPitchDetector(0.1f));
+        FeatureExtractor lenient = new FeatureExtractor(window, EnumSet.of(Feature.BASE_TONE), new YinPitchDetector(0.3f));
+        FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, strict).close();
+        Files.setLastModifiedTime(featureFile, OLD);
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, lenient)) {
+            assertNotEquals(OLD, Files.getLastModifiedTime(featureFile));
+            assertEquals(lenient.getPitchDetector().getName(), features.getParameters().getPitchDetector());
+        }
+    }
+
+    @Test
+    void recomputesChangedAudio() throws IOException, InterruptedException {
+        FeatureExtractor extractor = new FeatureExtractor(new HammingAudioWindow(), EnumSet.of(Feature.VOLUME));
+        FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, extractor).close();
+        Signals.writeWav(directory.resolve("clip.wav"), Signals.noise(2 * CONFIG.getSampleRate(), 0.1, 2), CONFIG.getSampleRate());
+        try (FeatureFile features = FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, extractor)) {
+            assertEquals(new Clip(AudioReader.readFile(audioFile, CONFIG.getSampleRate()), CONFIG).getFramesNum(), features.getFramesNum());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path foreign = directory.resolve("foreign.features");
+        Files.write(foreign, new byte[]{'R', 'I', 'F', 'F', 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        assertThrows(IOException.class, () -> FeatureFile.open(foreign));
+        Path empty = Files.createFile(directory.resolve("empty.features"));
+        assertThrows(IOException.class, () -> FeatureFile.open(empty));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException, InterruptedException {
+        FeatureFile.openOrCreate(featureFile, audioFile, CONFIG, new FeatureExtractor(new HammingAudioWindow())).close();
+        byte[] bytes = Files.readAllBytes(featureFile);
+        Files.write(featureFile, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> FeatureFile.open(featureFile));
+    }
+}
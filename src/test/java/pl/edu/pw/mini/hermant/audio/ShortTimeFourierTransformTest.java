@@ -0,0 +1,79 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortTimeFourierTransformTest {
+    private static final AnalysisConfig CONFIG = AnalysisConfig.getDefault();
+
+    private static FrameSequence frames(int framesNum) {
+        float[] samples = Signals.speechLike(framesNum * CONFIG.getFrameLength() / 2 + CONFIG.getFrameLength() + 1, 200, 1);
+        SampleBuffer buffer = new SampleBuffer(samples);
+        return new FrameSequence(buffer, 0.5f, CONFIG);
+    }
+
+    @Test
+    void matchesSpectraOfFrames() {
+        FrameSequence frames = frames(1000);
+        HammingAudioWindow window = new HammingAudioWindow();
+        float[] magnitudes = new ShortTimeFourierTransform(window, CONFIG, 3).transform(frames);
+        int bins = CONFIG.getBins();
+        for (int i = 0; i < frames.size(); i += 97) {
+            float[] expected = frames.get(i).getSpectrum(window).getMagnitudes();
+            for (int bin = 0; bin < bins; bin++) assertEquals(expected[bin], magnitudes[i * bins + bin], "frame " + i + ", bin " + bin);
+        }
+    }
+
+    @Test
+    void transformsOnAtMostWorkersThreads() {
+        FrameSequence frames = frames(2000);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<Frame> recording = new AbstractList<Frame>() {
+            @Override
+            public Frame get(int index) {
+                threads.add(Thread.currentThread());
+                return frames.get(index);
+            }
+
+            @Override
+            public int size() {
+                return frames.size();
+            }
+        };
+        new ShortTimeFourierTransform(new HammingAudioWindow(), CONFIG, 3).transform(recording);
+        // The calling thread only checks the configuration of the first frame
+        threads.remove(Thread.currentThread());
+        assertFalse(threads.isEmpty());
+        assertTrue(threads.size() <= 3, "Transformed on " + threads.size() + " threads");
+        for (Thread thread : threads) assertEquals("stft-worker", thread.getName());
+    }
+
+    @Test
+    void transformsSinglePartOnCallingThread() {
+        FrameSequence frames = frames(100);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<Frame> recording = new AbstractList<Frame>() {
+            @Override
+            public Frame get(int index) {
+                threads.add(Thread.currentThread());
+                return frames.get(index);
+            }
+
+            @Override
+            public int size() {
+                return frames.size();
+            }
+        };
+        new ShortTimeFourierTransform(new HammingAudioWindow(), CONFIG, 1).transform(recording);
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+    }
+}
@@ -0,0 +1,40 @@
+package pl.edu.pw.mini.hermant.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingStatisticsTest {
+    private static final int FRAMES_NUM = 20_000;
+    private static final int WINDOW_FRAMES = 500;
+
+    @Test
+    void matchesRollingStatistics() {
+        Random random = new Random(1);
+        float[] energies = new float[FRAMES_NUM];
+        float[] zcrs = new float[FRAMES_NUM];
+        for (int i = 0; i < FRAMES_NUM; i++) {
+            // Loud and quiet stretches, with rates far from zero so the squares of the rates would dominate the variance
+            energies[i] = (float) (random.nextDouble() * (i / 1000 % 2 == 0 ? 1e-2 : 1e-5));
+            zcrs[i] = (float) (1000 + random.nextGaussian() * (i / 1500 % 2 == 0 ? 1 : 20));
+        }
+        SlidingStatistics sliding = new SlidingStatistics(energies, zcrs, FRAMES_NUM);
+        RollingStatistics rolling = new RollingStatistics(WINDOW_FRAMES);
+        for (int i = 0; i < FRAMES_NUM; i++) {
+            sliding.add(i);
+            if (i >= WINDOW_FRAMES) sliding.remove(i - WINDOW_FRAMES);
+            rolling.addFrame(energies[i], zcrs[i]);
+            if (i % 97 != 0) continue;
+            String at = "frame " + i;
+            assertEquals(rolling.getFramesNum(), sliding.getFramesNum(), at);
+            assertEquals(rolling.getShortTimeEnergy(), sliding.getShortTimeEnergy(), 1e-6 * rolling.getShortTimeEnergy(), at);
+            assertEquals(rolling.getAverageZeroCrossingRate(), sliding.getAverageZeroCrossingRate(), 1e-3, at);
+            assertEquals(rolling.getLowShortTimeEnergyRatio(), sliding.getLowShortTimeEnergyRatio(), 1e-6, at);
+            assertEquals(rolling.getHighZeroCrossingRateRatio(), sliding.getHighZeroCrossingRateRatio(), 1e-6, at);
+            assertEquals(rolling.getStandardDeviationOfTheZCR(), sliding.getStandardDeviationOfTheZCR(),
+                    1e-3 * rolling.getStandardDeviationOfTheZCR(), at);
+        }
+    }
+}
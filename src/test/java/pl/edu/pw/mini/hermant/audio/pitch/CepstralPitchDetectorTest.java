@@ -0,0 +1,48 @@
+package pl.edu.pw.mini.hermant.audio.pitch;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+import pl.edu.pw.mini.hermant.audio.Frame;
+import pl.edu.pw.mini.hermant.audio.window.HammingAudioWindow;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CepstralPitchDetectorTest {
+    private static final int FRAMES_NUM = 200;
+
+    /**
+     * A 150 Hz tone with harmonics over noise, loud in every frame.
+     */
+    private static float[] signal(int samplesNum) {
+        float[] samples = Signals.noise(samplesNum, 0.05, 1);
+        for (int i = 0; i < samplesNum; i++) {
+            double t = (double) i / Signals.SAMPLE_RATE;
+            samples[i] += (float) (0.3 * (Math.sin(2 * Math.PI * 150 * t) + 0.5 * Math.sin(4 * Math.PI * 150 * t)
+                    + 0.25 * Math.sin(6 * Math.PI * 150 * t)));
+        }
+        return samples;
+    }
+
+    private static int voicedFrames(float[] samples, AnalysisConfig config) {
+        PitchDetector detector = new CepstralPitchDetector(new HammingAudioWindow());
+        int frameLength = config.getFrameLength();
+        int voiced = 0;
+        for (int i = 0; i < FRAMES_NUM; i++) {
+            if (detector.detect(new Frame(samples, i * frameLength, frameLength, i * frameLength, config)) > 0) voiced++;
+        }
+        return voiced;
+    }
+
+    @Test
+    void voicingDoesNotDependOnFftSize() {
+        AnalysisConfig config = AnalysisConfig.getDefault();
+        float[] samples = signal(FRAMES_NUM * config.getFrameLength());
+        int voiced = voicedFrames(samples, config);
+        int voicedLargeFft = voicedFrames(samples, config.withFftSize(4 * config.getFftSize()));
+        assertTrue(voiced > 0 && voiced < FRAMES_NUM, "Voiced frames: " + voiced);
+        // Zero padding interpolates the spectrum, so the decisions of single frames may differ
+        assertTrue(Math.abs(voiced - voicedLargeFft) <= FRAMES_NUM / 8,
+                "Voiced frames: " + voiced + " with the default FFT size, " + voicedLargeFft + " with a 4 times larger one");
+    }
+}
@@ -0,0 +1,111 @@
+package pl.edu.pw.mini.hermant.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.ClipStatistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BatchAnalyzerTest {
+    private static final int SAMPLE_RATE = Signals.SAMPLE_RATE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void printsOneLinePerFile() throws IOException, InterruptedException {
+        writeFixtures(6, 2);
+        Files.write(directory.resolve("notes.txt"), "not audio".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int analyzed = new BatchAnalyzer(3, 4, OutputFormat.CSV).analyze(directory, false, print(output));
+        List<String> lines = lines(output);
+        assertEquals(6, analyzed);
+        assertEquals(OutputFormat.CSV.header(), lines.get(0));
+        assertEquals(8, lines.size());
+        for (int i = 0; i < 6; i++) {
+            String name = "clip" + i + ".wav";
+            String line = lines.stream().filter(l -> l.contains(name)).findFirst().orElseThrow(AssertionError::new);
+            assertTrue(line.endsWith(","), line);
+            assertTrue(line.contains("," + 2 * SAMPLE_RATE + ","), line);
+        }
+        assertTrue(lines.stream().anyMatch(l -> l.contains("notes.txt") && !l.endsWith(",")));
+    }
+
+    @Test
+    void recursesIntoSubdirectories() throws IOException, InterruptedException {
+        writeFixtures(2, 1);
+        Path nested = Files.createDirectory(directory.resolve("nested"));
+        Signals.writeWav(nested.resolve("nested.wav"), Signals.speechLike(SAMPLE_RATE, 220, 0), SAMPLE_RATE);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(2, new BatchAnalyzer(2, 2, OutputFormat.JSON).analyze(directory, false, print(new ByteArrayOutputStream())));
+        assertEquals(3, new BatchAnalyzer(2, 2, OutputFormat.JSON).analyze(directory, true, print(output)));
+        assertEquals(3, lines(output).size());
+    }
+
+    @Test
+    void reportsRuntimeExceptionsAsErrors() throws IOException, InterruptedException {
+        writeFixtures(4, 1);
+        BatchAnalyzer analyzer = new BatchAnalyzer(2, 2, OutputFormat.JSON) {
+            @Override
+            protected ClipStatistics analyze(Path file) throws IOException, InterruptedException {
+                if (file.endsWith("clip2.wav")) throw new IllegalStateException("broken clip");
+                return super.analyze(file);
+            }
+        };
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(3, analyzer.analyze(directory, false, print(output)));
+        List<String> lines = lines(output);
+        assertEquals(4, lines.size());
+        String error = lines.stream().filter(l -> l.contains("clip2.wav")).findFirst().orElseThrow(AssertionError::new);
+        assertTrue(error.contains("\"error\":\"java.lang.IllegalStateException: broken clip\""), error);
+    }
+
+    @Test
+    void scalesWithWorkers() throws IOException, InterruptedException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        assumeTrue(processors >= 2, "Scaling needs at least two processors");
+        int workers = Math.min(processors, 4);
+        writeFixtures(4 * workers, 5);
+        // Warms up the analysis so neither run pays for class loading and compilation
+        new BatchAnalyzer(workers, 2 * workers, OutputFormat.CSV).analyze(directory, false, print(new ByteArrayOutputStream()));
+        long single = time(1);
+        long parallel = time(workers);
+        assertTrue(parallel < single * 0.75, "1 worker: " + single / 1e6 + " ms, " + workers + " workers: " + parallel / 1e6 + " ms");
+    }
+
+    private long time(int workers) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        new BatchAnalyzer(workers, 2 * workers, OutputFormat.CSV).analyze(directory, false, print(new ByteArrayOutputStream()));
+        return System.nanoTime() - start;
+    }
+
+    private void writeFixtures(int count, int seconds) throws IOException {
+        for (int i = 0; i < count; i++)
+            Signals.writeWav(directory.resolve("clip" + i + ".wav"), Signals.speechLike(seconds * SAMPLE_RATE, 110 * (i + 1), i), SAMPLE_RATE);
+    }
+
+    private static PrintStream print(ByteArrayOutputStream output) {
+        try {
+            return new PrintStream(output, true, StandardCharsets.UTF_8.name());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<String> lines(ByteArrayOutputStream output) {
+        return Arrays.stream(new String(output.toByteArray(), StandardCharsets.UTF_8).split("\\R"))
+                .filter(line -> !line.isEmpty()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,130 @@
+package pl.edu.pw.mini.hermant.fingerprint;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintIndexTest {
+    private static final int SAMPLE_RATE = Signals.SAMPLE_RATE;
+    private static final int CLIPS_NUM = 20;
+    private static final int CLIP_LENGTH = 5 * SAMPLE_RATE;
+    private static final int EXCERPT_LENGTH = 2 * SAMPLE_RATE;
+
+    @TempDir
+    static Path directory;
+    private static Path indexFile;
+
+    @BeforeAll
+    static void buildIndex() throws IOException {
+        FingerprintIndexBuilder builder = new FingerprintIndexBuilder(AnalysisConfig.getDefault());
+        for (int clip = 0; clip < CLIPS_NUM; clip++) assertEquals(clip, builder.add("clip" + clip, Signals.notes(CLIP_LENGTH, clip), CLIP_LENGTH));
+        indexFile = directory.resolve("clips.index");
+        builder.write(indexFile);
+    }
+
+    @Test
+    void keepsClipNames() throws IOException {
+        try (FingerprintIndex index = FingerprintIndex.open(indexFile)) {
+            assertEquals(CLIPS_NUM, index.getClipsNum());
+            assertEquals("clip7", index.getName(7));
+            assertEquals(AnalysisConfig.getDefault(), index.getConfig());
+            assertTrue(index.getPostingsNum() > 0);
+        }
+    }
+
+    @Test
+    void findsExcerptAtItsOffset() throws IOException {
+        Random random = new Random(1);
+        try (FingerprintIndex index = FingerprintIndex.open(indexFile)) {
+            for (int clip : new int[]{0, 7, 19}) {
+                int start = random.nextInt(CLIP_LENGTH - EXCERPT_LENGTH);
+                float[] excerpt = Arrays.copyOfRange(Signals.notes(CLIP_LENGTH, clip), start, start + EXCERPT_LENGTH);
+                for (int i = 0; i < excerpt.length; i++) excerpt[i] = 0.8f * excerpt[i] + (float) (0.02 * random.nextGaussian());
+                List<Match> matches = index.query(excerpt, excerpt.length, 3);
+                assertFalse(matches.isEmpty(), "clip" + clip + " at " + start);
+                Match best = matches.get(0);
+                assertEquals(clip, best.getClip(), matches.toString());
+                assertEquals("clip" + clip, best.getName());
+                assertEquals((double) start / SAMPLE_RATE, best.getOffset(), 0.05, matches.toString());
+                assertTrue(best.getScore() >= FingerprintIndex.MIN_SCORE);
+            }
+        }
+    }
+
+    @Test
+    void findsDecodedExcerpt() throws IOException, InterruptedException {
+        int start = 3 * SAMPLE_RATE / 2;
+        Path wav = directory.resolve("excerpt.wav");
+        Signals.writeWav(wav, Arrays.copyOfRange(Signals.notes(CLIP_LENGTH, 12), start, start + EXCERPT_LENGTH), SAMPLE_RATE);
+        try (FingerprintIndex index = FingerprintIndex.open(indexFile)) {
+            List<Match> matches = index.query(wav.toString(), 1);
+            assertNotNull(matches);
+            assertEquals(1, matches.size());
+            assertEquals(12, matches.get(0).getClip());
+            assertEquals(1.5, matches.get(0).getOffset(), 0.05);
+        }
+    }
+
+    @Test
+    void doesNotMatchOtherAudio() throws IOException {
+        try (FingerprintIndex index = FingerprintIndex.open(indexFile)) {
+            // Seeds of the clips would repeat the random noise floor of the clip
+            for (int seed = 0; seed < 10; seed++) {
+                float[] unseen = Signals.notes(EXCERPT_LENGTH, 1000 + seed);
+                assertEquals(Arrays.asList(), index.query(unseen, unseen.length, 3), "unseen notes " + seed);
+                float[] noise = Signals.noise(EXCERPT_LENGTH, 0.1, 1000 + seed);
+                assertEquals(Arrays.asList(), index.query(noise, noise.length, 3), "noise " + seed);
+            }
+            float[] silence = new float[EXCERPT_LENGTH];
+            assertEquals(Arrays.asList(), index.query(silence, silence.length, 3));
+        }
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path wav = directory.resolve("foreign.wav");
+        Signals.writeWav(wav, Signals.noise(SAMPLE_RATE, 0.1, 0), SAMPLE_RATE);
+        IOException e = assertThrows(IOException.class, () -> FingerprintIndex.open(wav));
+        assertTrue(e.getMessage().contains("isn't a fingerprint index"), e.getMessage());
+        Path empty = Files.createFile(directory.resolve("empty.index"));
+        assertThrows(IOException.class, () -> FingerprintIndex.open(empty));
+    }
+
+    @Test
+    void rejectsTruncatedIndex() throws IOException {
+        byte[] bytes = Files.readAllBytes(indexFile);
+        Path truncated = directory.resolve("truncated.index");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> FingerprintIndex.open(truncated));
+    }
+
+    @Test
+    void rejectsCorruptedHeader() throws IOException {
+        byte[] bytes = Files.readAllBytes(indexFile);
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        // Number of postings, after the magic, version, configuration, number of clips and padding
+        header.putLong(32, header.getLong(32) + 1);
+        Path corrupted = directory.resolve("corrupted.index");
+        Files.write(corrupted, bytes);
+        IOException e = assertThrows(IOException.class, () -> FingerprintIndex.open(corrupted));
+        assertTrue(e.getMessage().startsWith("Corrupted fingerprint index"), e.getMessage());
+
+        bytes = Files.readAllBytes(indexFile);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, FingerprintIndex.VERSION + 1);
+        Files.write(corrupted, bytes);
+        assertThrows(IOException.class, () -> FingerprintIndex.open(corrupted));
+    }
+}
@@ -0,0 +1,215 @@
+package pl.edu.pw.mini.hermant.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the decoder with a shell script standing in for ffmpeg, which cats the f32le input file and misbehaves
+ * depending on its name.
+ */
+class FFMPEGDecoderTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final String STAND_IN = String.join("\n",
+            "#!/bin/sh",
+            "# Called like ffmpeg: -nostdin -i <file> <output format> -",
+            "file=\"$3\"",
+            "case \"$file\" in",
+            "  *chatty*) head -c 200000 /dev/zero | tr '\\0' 'e' >&2 ;;",
+            "  *hang*) echo $$ > \"$file.pid\"; exec sleep 30 ;;",
+            "  *slow*) echo start >> \"$(dirname \"$file\")/processes.log\"; sleep 0.3;"
+                    + " echo end >> \"$(dirname \"$file\")/processes.log\" ;;",
+            "  *fail*) echo 'Invalid data found when processing input' >&2; exit 1 ;;",
+            "esac",
+            "exec cat \"$file\"",
+            "");
+
+    @TempDir
+    Path directory;
+    private String executable;
+    private float[] samples;
+
+    @BeforeEach
+    void writeStandIn() throws IOException {
+        assumeTrue(Files.isExecutable(Paths.get("/bin/sh")), "The stand-in needs a POSIX shell");
+        Path script = directory.resolve("ffmpeg.sh");
+        Files.write(script, STAND_IN.getBytes(StandardCharsets.US_ASCII));
+        assertTrue(script.toFile().setExecutable(true));
+        executable = script.toString();
+        samples = new float[100_000];
+        for (int i = 0; i < samples.length; i++) samples[i] = (float) Math.sin(i * 0.01);
+    }
+
+    @Test
+    void decodesOutput() throws IOException, InterruptedException {
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, 1, 10, TimeUnit.SECONDS, null)) {
+            assertArrayEquals(samples, decode(decoder, writeInput("clip.f32")));
+            assertNull(decoder.submit(writeInput("fail.f32"), SAMPLE_RATE).get());
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+        }
+    }
+
+    @Test
+    void drainsErrorsWrittenBeforeOutput() throws IOException, InterruptedException {
+        // More than a pipe buffer of errors before any samples deadlocks unless the errors are read concurrently
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, 1, 10, TimeUnit.SECONDS, null)) {
+            assertArrayEquals(samples, decode(decoder, writeInput("chatty.f32")));
+        }
+    }
+
+    @Test
+    void timeoutKillsProcess() throws IOException, InterruptedException {
+        String file = writeInput("hang.f32");
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, 1, 500, TimeUnit.MILLISECONDS, null)) {
+            long start = System.nanoTime();
+            IOException e = assertThrows(IOException.class, () -> decode(decoder, file));
+            assertTrue(e.getMessage().contains("500 ms"), e.getMessage());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+        assertKilled(file);
+    }
+
+    @Test
+    void interruptKillsProcess() throws Exception {
+        String file = writeInput("hang.f32");
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, 1, 0, TimeUnit.SECONDS, null)) {
+            Thread decoding = Thread.currentThread();
+            Thread interrupter = new Thread(() -> {
+                awaitPid(file);
+                decoding.interrupt();
+            });
+            interrupter.start();
+            assertThrows(InterruptedIOException.class, () -> decode(decoder, file));
+            assertTrue(Thread.interrupted());
+            interrupter.join();
+        }
+        assertKilled(file);
+    }
+
+    @Test
+    void cancellingKillsProcess() throws Exception {
+        String file = writeInput("hang.f32");
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, 1, 0, TimeUnit.SECONDS, null)) {
+            Future<SampleBuffer> future = decoder.submit(file, SAMPLE_RATE);
+            awaitPid(file);
+            assertTrue(future.cancel(true));
+            assertKilled(file);
+        }
+    }
+
+    @Test
+    void limitsConcurrentProcesses() throws Exception {
+        int maxProcesses = 2;
+        int decodes = 6;
+        ExecutorService callers = Executors.newFixedThreadPool(decodes);
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, maxProcesses, 30, TimeUnit.SECONDS, null)) {
+            List<Future<float[]>> results = new ArrayList<>();
+            for (int i = 0; i < decodes; i++) {
+                String file = writeInput("slow" + i + ".f32");
+                results.add(callers.submit(() -> decode(decoder, file)));
+            }
+            for (Future<float[]> result : results) assertArrayEquals(samples, result.get());
+        } finally {
+            callers.shutdown();
+        }
+        int running = 0;
+        int maxRunning = 0;
+        List<String> log = Files.readAllLines(directory.resolve("processes.log"));
+        for (String line : log) {
+            running += line.equals("start") ? 1 : -1;
+            maxRunning = Math.max(maxRunning, running);
+        }
+        assertEquals(2 * decodes, log.size());
+        assertEquals(maxProcesses, maxRunning);
+    }
+
+    @Test
+    void timeoutIncludesWaitForProcess() throws Exception {
+        String holding = writeInput("clip.f32");
+        String waiting = writeInput("waiting-hang.f32");
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try (FFMPEGDecoder decoder = new FFMPEGDecoder(executable, 1, 1, TimeUnit.SECONDS, null)) {
+            // Keeps the only process slot by not returning from the sink
+            Future<Boolean> holder = callers.submit(() -> decoder.decode(holding, SAMPLE_RATE, (samples, offset, length) -> {
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            held.await();
+            try {
+                assertTimeoutPreemptively(Duration.ofMillis(1500),
+                        () -> assertThrows(IOException.class, () -> decode(decoder, waiting)));
+            } finally {
+                release.countDown();
+            }
+            assertFalse(Files.exists(Paths.get(waiting + ".pid")), "Process started after the deadline");
+            ExecutionException e = assertThrows(ExecutionException.class, holder::get);
+            assertTrue(e.getCause() instanceof IOException);
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    private static float[] decode(FFMPEGDecoder decoder, String file) throws IOException, InterruptedException {
+        SampleBuffer buffer = new SampleBuffer();
+        assertTrue(decoder.decode(file, SAMPLE_RATE, buffer::add));
+        float[] decoded = new float[buffer.size()];
+        for (int i = 0; i < decoded.length; i++) decoded[i] = buffer.get(i);
+        return decoded;
+    }
+
+    private String writeInput(String name) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, Signals.toF32le(samples));
+        return file.toString();
+    }
+
+    /**
+     * Waits until the hanging stand-in for the file has started.
+     */
+    private static void awaitPid(String file) {
+        Path pid = Paths.get(file + ".pid");
+        try {
+            for (int i = 0; i < 500 && !(Files.exists(pid) && Files.size(pid) > 0); i++) Thread.sleep(10);
+        } catch (IOException | InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void assertKilled(String file) throws IOException, InterruptedException {
+        String pid = new String(Files.readAllBytes(Paths.get(file + ".pid")), StandardCharsets.US_ASCII).trim();
+        boolean alive = true;
+        for (int i = 0; i < 200 && alive; i++) {
+            alive = new ProcessBuilder("kill", "-0", pid).start().waitFor() == 0;
+            if (alive) Thread.sleep(10);
+        }
+        assertFalse(alive, "Process " + pid + " is still running");
+    }
+}
@@ -0,0 +1,99 @@
+package pl.edu.pw.mini.hermant.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.SampleBuffer;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PCMCacheTest {
+    private static final String PARAMETERS = "44100";
+
+    @TempDir
+    Path directory;
+    private PCMCache cache;
+    private String source;
+    private float[] samples;
+
+    @BeforeEach
+    void createCache() throws IOException {
+        cache = new PCMCache(directory.resolve("cache"), PCMCache.DEFAULT_MAX_BYTES);
+        source = directory.resolve("source.wav").toString();
+        samples = Signals.speechLike(100_000, 220, 1);
+        Files.write(directory.resolve("source.wav"), new byte[]{1, 2, 3});
+    }
+
+    private void store(String file, float[] samples) throws IOException {
+        PCMCache.Writer writer = cache.writer(file, PARAMETERS);
+        assertNotNull(writer);
+        try {
+            writer.accept(samples, 0, samples.length);
+            writer.commit();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private Path entry() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("cache"))) {
+            return files.filter(path -> path.toString().endsWith(".f32le")).findFirst().orElseThrow(AssertionError::new);
+        }
+    }
+
+    @Test
+    void loadsStoredSamples() throws IOException {
+        store(source, samples);
+        SampleBuffer loaded = cache.load(source, PARAMETERS);
+        assertNotNull(loaded);
+        assertArrayEquals(samples, Arrays.copyOf(loaded.array(), loaded.size()));
+    }
+
+    @Test
+    void readsStoredSamplesInChunks() throws IOException {
+        store(source, samples);
+        SampleBuffer read = new SampleBuffer();
+        assertTrue(cache.read(source, PARAMETERS, read::add));
+        assertArrayEquals(samples, Arrays.copyOf(read.array(), read.size()));
+    }
+
+    @Test
+    void missesOtherParametersAndChangedSources() throws IOException {
+        store(source, samples);
+        assertNull(cache.load(source, "8000"));
+        Files.setLastModifiedTime(directory.resolve("source.wav"), FileTime.fromMillis(0));
+        assertNull(cache.load(source, PARAMETERS));
+        assertFalse(cache.read(source, PARAMETERS, (buffer, offset, length) -> fail("Nothing is cached")));
+    }
+
+    @Test
+    void rejectsStreamsTooLongToLoad() throws IOException {
+        store(source, samples);
+        // Sparse, so the entry takes no space on disk
+        try (RandomAccessFile file = new RandomAccessFile(entry().toFile(), "rw")) {
+            file.setLength(((long) Integer.MAX_VALUE + 1) * Float.BYTES);
+        }
+        assertThrows(IOException.class, () -> cache.load(source, PARAMETERS));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws IOException {
+        cache = new PCMCache(directory.resolve("cache"), samples.length * Float.BYTES);
+        String other = directory.resolve("other.wav").toString();
+        Files.write(directory.resolve("other.wav"), new byte[]{4, 5, 6});
+        store(source, samples);
+        Files.setLastModifiedTime(entry(), FileTime.fromMillis(0));
+        store(other, samples);
+        assertNull(cache.load(source, PARAMETERS));
+        assertNotNull(cache.load(other, PARAMETERS));
+    }
+}
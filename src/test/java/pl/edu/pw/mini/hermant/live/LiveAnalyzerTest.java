@@ -0,0 +1,132 @@
+package pl.edu.pw.mini.hermant.live;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.pw.mini.hermant.Signals;
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Feeds the analyzer from a synthetic producer writing f32le chunks to a pipe. Only the framing, the order of the
+ * frames and the bounds on the backlog are checked, latency and throughput are measured by {@code LiveBenchmark}.
+ */
+class LiveAnalyzerTest {
+    private static final AnalysisConfig CONFIG = AnalysisConfig.getDefault();
+    private static final int CHUNK_SAMPLES = CONFIG.getSampleRate() / 100;
+    private static final int PIPE_BYTES = 1 << 16;
+
+    @Test
+    void deliversEveryFrameInOrder() throws Exception {
+        int chunksNum = 200;
+        Producer producer = new Producer(chunksNum);
+        List<LiveFrame> frames = new ArrayList<>();
+        // Room for the whole stream, so nothing is dropped however slow the analysis is
+        int latencyFrames = chunksNum * CHUNK_SAMPLES / CONFIG.getFrameLength() + 1;
+        new LiveAnalyzer(CONFIG, 0.5f, latencyFrames, 45).analyze(producer.open(), frames::add);
+        producer.join();
+        int hop = CONFIG.getFrameLength() / 2;
+        assertEquals((chunksNum * CHUNK_SAMPLES - CONFIG.getFrameLength()) / hop + 1, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(i, frames.get(i).getIndex());
+            assertEquals((long) i * hop, frames.get(i).getFrameStart());
+            assertEquals(0, frames.get(i).getDroppedSamples());
+            assertTrue(frames.get(i).getBacklog() <= latencyFrames * CONFIG.getFrameLength());
+        }
+    }
+
+    @Test
+    void dropsSamplesInsteadOfFallingBehind() throws Exception {
+        int latencyFrames = 4;
+        int chunksNum = 300;
+        Producer producer = new Producer(chunksNum);
+        List<LiveFrame> frames = new ArrayList<>();
+        new LiveAnalyzer(CONFIG, 0.0f, latencyFrames, 45).analyze(producer.open(), frame -> {
+            // The first frame is analyzed only after the whole stream was written, far more than fits in the buffer
+            if (frames.isEmpty()) join(producer);
+            frames.add(frame);
+        });
+        int frameLength = CONFIG.getFrameLength();
+        LiveFrame last = frames.get(frames.size() - 1);
+        assertTrue(last.getDroppedSamples() > 0);
+        // Besides the first frame, only what the ring buffer and the pipe held is left to analyze
+        int buffered = latencyFrames + (PIPE_BYTES / Float.BYTES + frameLength - 1) / frameLength + 1;
+        assertTrue(frames.size() <= 1 + buffered, frames.size() + " frames delivered");
+        assertTrue(frames.size() < chunksNum * CHUNK_SAMPLES / frameLength);
+        for (int i = 0; i < frames.size(); i++) {
+            LiveFrame frame = frames.get(i);
+            assertEquals(i, frame.getIndex());
+            assertTrue(frame.getBacklog() <= latencyFrames * frameLength);
+            if (i == 0) continue;
+            LiveFrame previous = frames.get(i - 1);
+            assertTrue(frame.getDroppedSamples() >= previous.getDroppedSamples());
+            assertTrue(frame.getFrameStart() >= previous.getFrameStart() + frameLength);
+        }
+        assertEquals(chunksNum * CHUNK_SAMPLES, last.getFrameStart() + frameLength, frameLength);
+    }
+
+    @Test
+    void usesItsConfiguration() throws Exception {
+        AnalysisConfig config = new AnalysisConfig(16000, 400, 160, 512);
+        byte[] stream = Signals.toF32le(new float[16000]);
+        List<Long> starts = new ArrayList<>();
+        // Room for the whole stream, which is written at once
+        LiveAnalyzer analyzer = new LiveAnalyzer(config, 0.5f, 40, 45);
+        assertSame(config, analyzer.getConfig());
+        analyzer.analyze(new ByteArrayInputStream(stream), frame -> starts.add(frame.getFrameStart()));
+        assertEquals((16000 - 400) / 200 + 1, starts.size());
+        assertEquals(Arrays.asList(0L, 200L, 400L), starts.subList(0, 3));
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes chunks of a tone to a pipe as fast as the pipe takes them.
+     */
+    private static class Producer extends Thread {
+        private final int chunksNum;
+        private final PipedOutputStream output = new PipedOutputStream();
+
+        Producer(int chunksNum) {
+            super("pcm-producer");
+            this.chunksNum = chunksNum;
+        }
+
+        /**
+         * Starts writing to the returned stream.
+         */
+        InputStream open() throws IOException {
+            PipedInputStream input = new PipedInputStream(output, PIPE_BYTES);
+            start();
+            return input;
+        }
+
+        @Override
+        public void run() {
+            float[] chunk = new float[CHUNK_SAMPLES];
+            try {
+                for (int c = 0; c < chunksNum; c++) {
+                    for (int i = 0; i < chunk.length; i++) chunk[i] = (float) (0.3 * Math.sin((c * CHUNK_SAMPLES + i) * 0.05));
+                    output.write(Signals.toF32le(chunk));
+                }
+                output.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
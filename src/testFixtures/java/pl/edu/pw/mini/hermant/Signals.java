@@ -0,0 +1,127 @@
+package pl.edu.pw.mini.hermant;
+
+import pl.edu.pw.mini.hermant.audio.AnalysisConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic input for the tests and the benchmarks, which both compile this source root.
+ */
+public final class Signals {
+    public static final int SAMPLE_RATE = AnalysisConfig.DEFAULT_SAMPLE_RATE;
+    public static final int FRAME_LENGTH = AnalysisConfig.DEFAULT_FRAME_LENGTH;
+
+    private Signals() {
+    }
+
+    /**
+     * Alternates one second of a tone with harmonics and one second of quiet noise, like speech with pauses.
+     */
+    public static float[] speechLike(int samplesNum, double frequency, long seed) {
+        Random random = new Random(seed);
+        float[] samples = new float[samplesNum];
+        for (int i = 0; i < samplesNum; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            boolean loud = (i / SAMPLE_RATE) % 2 == 0;
+            double tone = Math.sin(2 * Math.PI * frequency * t) + 0.5 * Math.sin(4 * Math.PI * frequency * t)
+                    + 0.25 * Math.sin(6 * Math.PI * frequency * t);
+            samples[i] = (float) ((loud ? 0.3 * tone : 0.0) + 0.01 * random.nextGaussian());
+        }
+        return samples;
+    }
+
+    /**
+     * Random notes of 0.1 to 0.4 s, each a few partials between 100 and 4000 Hz with a short attack and an exponential
+     * decay, over quiet noise. Every seed gives a different recording.
+     */
+    public static float[] notes(int samplesNum, long seed) {
+        Random random = new Random(seed);
+        float[] samples = new float[samplesNum];
+        for (int start = 0; start < samplesNum; ) {
+            int length = (int) (SAMPLE_RATE * (0.1 + 0.3 * random.nextDouble()));
+            int partials = 2 + random.nextInt(3);
+            for (int partial = 0; partial < partials; partial++) {
+                double frequency = 100 + 3900 * random.nextDouble();
+                double amplitude = 0.05 + 0.25 * random.nextDouble();
+                for (int i = start; i < Math.min(samplesNum, start + length); i++) {
+                    double t = (double) (i - start) / SAMPLE_RATE;
+                    double envelope = Math.min(1, t / 0.01) * Math.exp(-t / 0.15);
+                    samples[i] += (float) (amplitude * envelope * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+                }
+            }
+            start += length;
+        }
+        for (int i = 0; i < samplesNum; i++) samples[i] += (float) (0.005 * random.nextGaussian());
+        return samples;
+    }
+
+    /**
+     * Frames of harmonic tones with random phases and a little noise, one fundamental frequency per frame drawn
+     * uniformly from [60, 380] Hz and written to {@code frequencies}.
+     */
+    public static float[] tones(float[] frequencies, int frameLength, long seed) {
+        Random random = new Random(seed);
+        float[] samples = new float[frequencies.length * frameLength];
+        for (int frame = 0; frame < frequencies.length; frame++) {
+            float frequency = frequencies[frame] = 60 + 320 * random.nextFloat();
+            double phase = 2 * Math.PI * random.nextDouble();
+            for (int i = 0; i < frameLength; i++) {
+                double t = (double) i / SAMPLE_RATE, tone = 0;
+                for (int harmonic = 1; harmonic <= 5; harmonic++)
+                    tone += Math.sin(2 * Math.PI * frequency * harmonic * t + phase * harmonic) / harmonic;
+                samples[frame * frameLength + i] = (float) (0.4 * tone + 0.02 * random.nextGaussian());
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Gaussian noise of the given standard deviation.
+     */
+    public static float[] noise(int samplesNum, double deviation, long seed) {
+        Random random = new Random(seed);
+        float[] samples = new float[samplesNum];
+        for (int i = 0; i < samplesNum; i++) samples[i] = (float) (deviation * random.nextGaussian());
+        return samples;
+    }
+
+    /**
+     * Encodes the samples the way ffmpeg outputs them with {@code -f f32le}.
+     */
+    public static byte[] toF32le(float[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(samples);
+        return buffer.array();
+    }
+
+    /**
+     * 16 bit WAV file with the samples in every channel.
+     */
+    public static byte[] toWav(float[] samples, int sampleRate, int channels) {
+        int blockAlign = channels * Short.BYTES;
+        int dataLength = samples.length * blockAlign;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataLength).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * blockAlign).putShort((short) blockAlign).putShort((short) 16);
+        buffer.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataLength);
+        for (float sample : samples) {
+            short value = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample * 32768)));
+            for (int channel = 0; channel < channels; channel++) buffer.putShort(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Writes the samples as a 16 bit mono WAV file.
+     */
+    public static void writeWav(Path file, float[] samples, int sampleRate) throws IOException {
+        Files.write(file, toWav(samples, sampleRate, 1));
+    }
+}